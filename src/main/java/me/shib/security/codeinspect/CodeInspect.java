@@ -1,81 +1,31 @@
 package me.shib.security.codeinspect;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import me.shib.security.codeinspect.scanners.java.dependencycheck.DependencyCheck;
-import me.shib.security.codeinspect.scanners.java.findsecbugs.FindSecBugsScanner;
-import me.shib.security.codeinspect.scanners.javascript.retirejs.RetirejsScanner;
-import me.shib.security.codeinspect.scanners.ruby.brakeman.BrakemanScanner;
-import me.shib.security.codeinspect.scanners.ruby.bundleraudit.BundlerAudit;
-import org.apache.commons.codec.digest.DigestUtils;
-
 import java.io.*;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public abstract class CodeInspect {
 
     private static final transient String cveBaseURL = "https://nvd.nist.gov/vuln/detail/";
-    private static final transient Gson gson = new GsonBuilder().setPrettyPrinting()
-            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
-    private static final transient Set<CodeInspect> inspectors = new HashSet<>();
+    private static final transient int commandOutputTailLines = 500;
+    private static final transient String[] defaultRetainedPatterns = {"command not found", "is currently not installed"};
 
     private final transient CodeInspectConfig config;
     private final transient CodeInspectResult result;
+    private transient volatile long deadline;
 
     public CodeInspect(CodeInspectConfig config) {
         this.config = config;
-        this.result = new CodeInspectResult(config.getProject(), getLang(),
+        this.result = new CodeInspectResult(config.getFindingStream(), config.getProject(), getLang(),
                 getContext(), getTool(), config.getScanDirPath());
     }
 
-    static synchronized void addScanner(CodeInspect codeinspect) {
-        inspectors.add(codeinspect);
-    }
-
-    private static synchronized List<CodeInspect> getCodeInspects(CodeInspectConfig config) {
-        List<CodeInspect> qualifiedClasses = new ArrayList<>();
-        System.out.println("Attempting to run for Language: " + config.getLang());
-        if (config.getLang() != null) {
-            for (CodeInspect codeinspect : inspectors) {
-                try {
-                    if (codeinspect.getLang() != null && config.getLang() == codeinspect.getLang()) {
-                        if (config.getTool() == null || config.getTool().isEmpty() ||
-                                config.getTool().equalsIgnoreCase(codeinspect.getTool())) {
-                            if (config.getContext() == null || config.getContext() == codeinspect.getContext()) {
-                                qualifiedClasses.add(codeinspect);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return qualifiedClasses;
-    }
-
-    private static synchronized void prepareScanners(CodeInspectConfig config) {
-        CodeInspect.addScanner(new BrakemanScanner(config));
-        CodeInspect.addScanner(new BundlerAudit(config));
-        CodeInspect.addScanner(new RetirejsScanner(config));
-        CodeInspect.addScanner(new DependencyCheck(config));
-        CodeInspect.addScanner(new FindSecBugsScanner(config));
-    }
-
-    public static synchronized List<CodeInspect> getScanners(CodeInspectConfig config) throws CodeInspectException {
-        prepareScanners(config);
-        List<CodeInspect> scanners = CodeInspect.getCodeInspects(config);
+    public static List<CodeInspect> getScanners(CodeInspectConfig config) throws CodeInspectException {
+        CodeInspectRegistry registry = new CodeInspectRegistry(config);
+        List<CodeInspect> scanners = registry.getQualified();
         if (scanners.size() > 0) {
-            try {
-                buildProject(config.getBuildScript(), config.getScanDir());
-                for (CodeInspect codeinspect : scanners) {
-                    codeinspect.result.setProject(config.getProject());
-                }
-            } catch (IOException | InterruptedException e) {
-                throw new CodeInspectException(e);
+            for (CodeInspect codeinspect : scanners) {
+                codeinspect.result.setProject(config.getProject());
             }
         } else {
             System.out.println("No scanners available to scan this code.");
@@ -83,10 +33,24 @@ public abstract class CodeInspect {
         return scanners;
     }
 
-    private static synchronized void buildProject(String buildScript, File scanDir) throws IOException, InterruptedException, CodeInspectException {
+    static CodeInspectStage getBuildStage(final CodeInspectConfig config) {
+        return new CodeInspectStage(CodeInspectStage.BUILD) {
+            @Override
+            protected void run() throws IOException, InterruptedException, CodeInspectException {
+                buildProject(config);
+            }
+        };
+    }
+
+    private static void buildProject(CodeInspectConfig config) throws IOException, InterruptedException, CodeInspectException {
+        String buildScript = config.getBuildScript();
         if (buildScript != null) {
             System.out.println("Running: " + buildScript);
-            CommandRunner commandRunner = new CommandRunner(buildScript, scanDir, "Building Project");
+            CommandRunner commandRunner = new CommandRunner(buildScript, config.getScanDir(), "Building Project");
+            commandRunner.captureTail(commandOutputTailLines);
+            commandRunner.streamTo(config.newLogFile(CodeInspectStage.BUILD));
+            commandRunner.recordUsageTo(config.getUsageReport());
+            commandRunner.recordChildTimes();
             if (commandRunner.execute() != 0) {
                 throw new CodeInspectException("Build Failed!");
             }
@@ -99,6 +63,20 @@ public abstract class CodeInspect {
         pw.close();
     }
 
+    protected File getWorkspaceFile(String name) throws CodeInspectException {
+        return new File(config.getWorkspaceDir(), name);
+    }
+
+    protected boolean hasChangedFiles(String... fileNames) {
+        CodeInspectChangeSet changeSet = config.getChangeSet();
+        return changeSet == null || changeSet.hasChangedFiles(config.getScanDir(), fileNames);
+    }
+
+    protected boolean isChanged(File file, int startLine, int endLine) {
+        CodeInspectChangeSet changeSet = config.getChangeSet();
+        return changeSet == null || changeSet.isChanged(file, startLine, endLine);
+    }
+
     protected String getUrlForCVE(String cve) throws CodeInspectException {
         if (cve != null && cve.toUpperCase().startsWith("CVE")) {
             return cveBaseURL + cve;
@@ -119,39 +97,67 @@ public abstract class CodeInspect {
     }
 
     protected String getHash(File file, int startLineNo, int endLineNo, String type, String[] args) throws IOException {
-        class HashableContent {
-            private String filePath;
-            private String snippet;
-            private String type;
-            private String[] args;
-        }
-        List<String> lines = readLinesFromFile(file);
-        if (startLineNo <= endLineNo && endLineNo <= lines.size() && startLineNo > 0) {
-            StringBuilder snippet = new StringBuilder();
-            snippet.append(lines.get(startLineNo - 1));
-            for (int i = startLineNo; i < endLineNo; i++) {
-                snippet.append("\n").append(lines.get(i));
-            }
-            HashableContent hashableContent = new HashableContent();
-            hashableContent.type = type;
-            hashableContent.filePath = file.getAbsolutePath().replaceFirst(config.getScanDir().getAbsolutePath(), "");
-            hashableContent.snippet = snippet.toString();
-            hashableContent.args = args;
-            return DigestUtils.sha1Hex(gson.toJson(hashableContent));
-        }
-        return null;
+        return config.getFingerprintEngine().fingerprint(new HashRequest(file, startLineNo, endLineNo, type, args));
+    }
+
+    protected List<String> getHashes(List<HashRequest> requests) throws IOException {
+        return config.getFingerprintEngine().fingerprint(requests);
     }
 
     protected CodeInspectFinding newFinding(String title, CodeInspectPriority priority) {
         return result.newFinding(title, priority);
     }
 
-    protected String runCommand(String command) throws IOException, InterruptedException {
+    protected String runCommand(String command, String... retainedPatterns) throws IOException, InterruptedException {
+        return runCommand(CommandRunner.tokenize(command), retainedPatterns);
+    }
+
+    protected String runCommand(List<String> command, String... retainedPatterns)
+            throws IOException, InterruptedException {
+        CommandRunner commandRunner = newCommandRunner(command, retainedPatterns);
+        commandRunner.streamTo(config.newLogFile(getTool()));
+        return executeCommand(commandRunner);
+    }
+
+    protected String runCommandToFile(List<String> command, File outputFile, String... retainedPatterns)
+            throws IOException, InterruptedException {
+        CommandRunner commandRunner = newCommandRunner(command, retainedPatterns);
+        commandRunner.redirectOutputTo(outputFile);
+        return executeCommand(commandRunner);
+    }
+
+    private CommandRunner newCommandRunner(List<String> command, String... retainedPatterns) {
         CommandRunner commandRunner = new CommandRunner(command, config.getScanDir(), getTool());
+        commandRunner.captureTail(commandOutputTailLines);
+        commandRunner.recordUsageTo(config.getUsageReport());
+        commandRunner.recordChildTimes();
+        for (String pattern : defaultRetainedPatterns) {
+            commandRunner.retainLinesMatching(pattern);
+        }
+        for (String pattern : retainedPatterns) {
+            commandRunner.retainLinesMatching(pattern);
+        }
+        return commandRunner;
+    }
+
+    private String executeCommand(CommandRunner commandRunner) throws IOException, InterruptedException {
+        if (deadline > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new CodeInspectTimeoutException(getTool() + " exceeded its time limit");
+            }
+            commandRunner.limitTimeout(remaining);
+        }
         commandRunner.execute();
         return commandRunner.getResult();
     }
 
+    void startDeadline(long timeoutMillis) {
+        if (timeoutMillis > 0) {
+            this.deadline = System.currentTimeMillis() + timeoutMillis;
+        }
+    }
+
     private List<String> readLinesFromFile(File file) throws IOException {
         List<String> lines = new ArrayList<>();
         if (file.exists() && !file.isDirectory()) {
@@ -177,6 +183,10 @@ public abstract class CodeInspect {
         return config;
     }
 
+    CodeInspectResult getResult() {
+        return result;
+    }
+
     public String getProject() {
         return result.getProject();
     }
@@ -189,8 +199,8 @@ public abstract class CodeInspect {
         return result.getScanDirPath();
     }
 
-    public List<CodeInspectFinding> getFindings() {
-        return result.getFindings();
+    protected List<CodeInspectStage> getStages() {
+        return new ArrayList<>();
     }
 
     public abstract Lang getLang();
@@ -201,6 +211,42 @@ public abstract class CodeInspect {
 
     protected abstract void scan() throws Exception;
 
+    public static final class HashRequest {
+        private final File file;
+        private final int startLineNo;
+        private final int endLineNo;
+        private final String type;
+        private final String[] args;
+
+        public HashRequest(File file, int startLineNo, int endLineNo, String type, String[] args) {
+            this.file = file;
+            this.startLineNo = startLineNo;
+            this.endLineNo = endLineNo;
+            this.type = type;
+            this.args = args;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        int getStartLineNo() {
+            return startLineNo;
+        }
+
+        int getEndLineNo() {
+            return endLineNo;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        String[] getArgs() {
+            return args;
+        }
+    }
+
     public enum Context {
         SAST("CodeInspect-SAST"),
         SCA("CodeInspect-SCA");
@@ -0,0 +1,138 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class CodeInspectChangeSet {
+
+    private static final transient Pattern hunkPattern = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private final Path repoPath;
+    private final String baseCommit;
+    private final Map<String, List<int[]>> changedLines;
+    private final boolean lineLevel;
+
+    private CodeInspectChangeSet(File repoDir, String baseCommit, boolean lineLevel) {
+        this.repoPath = repoDir.toPath().toAbsolutePath().normalize();
+        this.baseCommit = baseCommit;
+        this.changedLines = new LinkedHashMap<>();
+        this.lineLevel = lineLevel;
+    }
+
+    private void addFiles(String fileList) {
+        for (String path : fileList.split("[\\u0000\n]")) {
+            if (!path.trim().isEmpty() && !changedLines.containsKey(path)) {
+                changedLines.put(path, new ArrayList<int[]>());
+            }
+        }
+    }
+
+    static CodeInspectChangeSet fromDiff(File repoDir, String baseCommit, String fileList, String diff) {
+        CodeInspectChangeSet changeSet = new CodeInspectChangeSet(repoDir, baseCommit, true);
+        changeSet.addFiles(fileList);
+        List<int[]> currentLines = null;
+        boolean inHeader = false;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("diff --git ")) {
+                inHeader = true;
+                currentLines = null;
+            } else if (inHeader && line.startsWith("+++ ")) {
+                String path = line.substring(4);
+                if (path.endsWith("\t")) {
+                    path = path.substring(0, path.length() - 1);
+                }
+                currentLines = changeSet.changedLines.get(path);
+            } else if (line.startsWith("@@ ")) {
+                inHeader = false;
+                Matcher matcher = hunkPattern.matcher(line);
+                if (currentLines != null && matcher.find()) {
+                    int start = Integer.parseInt(matcher.group(1));
+                    int count = matcher.group(2) == null ? 1 : Integer.parseInt(matcher.group(2));
+                    if (count > 0) {
+                        currentLines.add(new int[]{start, start + count - 1});
+                    }
+                }
+            }
+        }
+        return changeSet;
+    }
+
+    static CodeInspectChangeSet fromFileList(File repoDir, String baseCommit, String fileList) {
+        CodeInspectChangeSet changeSet = new CodeInspectChangeSet(repoDir, baseCommit, false);
+        changeSet.addFiles(fileList);
+        return changeSet;
+    }
+
+    private String toRepoPath(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(repoPath)) {
+            return null;
+        }
+        return repoPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static boolean matchesName(String path, String[] fileNames) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        for (String fileName : fileNames) {
+            if (fileName.startsWith("*.")) {
+                if (name.toLowerCase().endsWith(fileName.substring(1).toLowerCase())) {
+                    return true;
+                }
+            } else if (name.equalsIgnoreCase(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getBaseCommit() {
+        return baseCommit;
+    }
+
+    public int getChangedFileCount() {
+        return changedLines.size();
+    }
+
+    public boolean isFileChanged(File file) {
+        String path = toRepoPath(file);
+        return path != null && changedLines.containsKey(path);
+    }
+
+    public boolean isChanged(File file, int startLine, int endLine) {
+        String path = toRepoPath(file);
+        if (path == null || !changedLines.containsKey(path)) {
+            return false;
+        }
+        if (!lineLevel) {
+            return true;
+        }
+        for (int[] range : changedLines.get(path)) {
+            if (range[0] <= endLine && startLine <= range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getChangedFiles(File dir, String... fileNames) {
+        List<String> changedFiles = new ArrayList<>();
+        String dirPath = toRepoPath(dir);
+        if (dirPath == null) {
+            return changedFiles;
+        }
+        String prefix = dirPath.isEmpty() ? "" : dirPath + "/";
+        for (String path : changedLines.keySet()) {
+            if (path.startsWith(prefix) && (fileNames.length == 0 || matchesName(path, fileNames))) {
+                changedFiles.add(path.substring(prefix.length()));
+            }
+        }
+        return changedFiles;
+    }
+
+    public boolean hasChangedFiles(File dir, String... fileNames) {
+        return !getChangedFiles(dir, fileNames).isEmpty();
+    }
+}
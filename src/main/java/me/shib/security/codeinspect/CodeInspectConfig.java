@@ -1,26 +1,54 @@
 package me.shib.security.codeinspect;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class CodeInspectConfig {
 
-    private static transient CodeInspectConfig config;
+    private static transient final int defaultLangThresholdPercentage = 10;
 
+    private transient File workDir;
     private transient File scanDir;
     private transient GitRepo gitRepo;
+    private transient File logDir;
+    private transient File workspaceDir;
+    private transient final AtomicInteger logFileCount = new AtomicInteger();
+    private transient final CommandUsageReport usageReport = new CommandUsageReport();
+    private transient final SnippetCache snippetCache = new SnippetCache();
+    private transient final FingerprintEngine fingerprintEngine = new FingerprintEngine(this);
+    private transient final FindingStream findingStream = new FindingStream();
+    private transient CodeInspectChangeSet changeSet;
+    private transient CodeInspectManifest manifest;
+    private transient boolean envDefaults = true;
+    private transient String baseRef;
+    private transient boolean sparse;
 
     private String project;
     private String scanDirPath;
     private String buildScript;
     private Lang lang;
+    private List<Lang> langs;
     private CodeInspect.Context context;
     private String tool;
     private GitCredential gitCredential;
 
     public CodeInspectConfig(String project, String scanDirPath, String buildScript, Lang lang,
                              CodeInspect.Context context, String tool, GitRepo gitRepo, GitCredential gitCredential) {
+        this(project, scanDirPath, buildScript, lang, context, tool, gitRepo, gitCredential, null);
+    }
+
+    public CodeInspectConfig(String project, String scanDirPath, String buildScript, Lang lang,
+                             CodeInspect.Context context, String tool, GitRepo gitRepo, GitCredential gitCredential,
+                             File workDir) {
+        this.workDir = workDir;
         this.project = project;
         this.scanDirPath = scanDirPath;
         this.buildScript = buildScript;
@@ -32,15 +60,28 @@ public final class CodeInspectConfig {
         init();
     }
 
+    CodeInspectConfig(String project, String scanDirPath, Lang lang, CodeInspect.Context context, String tool,
+                      GitRepo gitRepo, GitCredential gitCredential, File workDir, String baseRef, boolean sparse) {
+        this.workDir = workDir;
+        this.project = project;
+        this.scanDirPath = scanDirPath;
+        this.lang = lang;
+        this.context = context;
+        this.tool = tool;
+        this.gitRepo = gitRepo;
+        this.gitCredential = gitCredential;
+        this.envDefaults = false;
+        this.baseRef = baseRef;
+        this.sparse = sparse;
+        init();
+    }
+
     private CodeInspectConfig() {
         init();
     }
 
-    static synchronized CodeInspectConfig getInstance() {
-        if (config == null) {
-            config = new CodeInspectConfig();
-        }
-        return config;
+    static CodeInspectConfig fromEnv() {
+        return new CodeInspectConfig();
     }
 
     private synchronized GitRepo buildGitRepoFromEnv() {
@@ -60,11 +101,39 @@ public final class CodeInspectConfig {
         }
     }
 
-    private Lang buildLangFromEnvOrContent(File scanDir) {
+    private List<Lang> buildLangsFromEnvOrContent() {
         try {
-            return Lang.valueOf(CodeInspectEnv.CODEINSPECT_LANG.getAsString());
+            if (!envDefaults) {
+                throw new CodeInspectException("Languages are detected from content for scan jobs");
+            }
+            List<Lang> langs = new ArrayList<>();
+            for (String lang : CodeInspectEnv.CODEINSPECT_LANG.getAsList()) {
+                Lang envLang = Lang.valueOf(lang.trim());
+                if (!langs.contains(envLang)) {
+                    langs.add(envLang);
+                }
+            }
+            return langs;
         } catch (Exception e) {
-            return Lang.getLangFromDir(scanDir);
+            boolean multiLang = CodeInspectEnv.CODEINSPECT_MULTILANG.getAsBoolean();
+            Integer threshold = CodeInspectEnv.CODEINSPECT_LANG_THRESHOLD.getAsInteger();
+            if (threshold == null || threshold < 0 || threshold > 100) {
+                threshold = defaultLangThresholdPercentage;
+            }
+            if (CodeInspectEnv.CODEINSPECT_LANG_SAMPLING.getAsBoolean()) {
+                List<Lang> sampledLangs = new LangSampler(multiLang, threshold).detect(scanDir);
+                if (sampledLangs != null) {
+                    return sampledLangs;
+                }
+            }
+            if (multiLang) {
+                return Lang.getLangsFromManifest(getManifest(), threshold);
+            }
+            Lang lang = Lang.getLangFromManifest(getManifest());
+            if (lang == null) {
+                return new ArrayList<>();
+            }
+            return Collections.singletonList(lang);
         }
     }
 
@@ -76,6 +145,81 @@ public final class CodeInspectConfig {
         return scanDir;
     }
 
+    public File getWorkDir() {
+        return workDir;
+    }
+
+    synchronized File getLogDir() throws CodeInspectException {
+        if (logDir == null) {
+            String logDirPath = CodeInspectEnv.CODEINSPECT_LOG_DIR.getAsString();
+            try {
+                if (logDirPath != null) {
+                    logDir = new File(logDirPath);
+                    if (!logDir.exists() && !logDir.mkdirs()) {
+                        throw new CodeInspectException("Unable to create log directory: " + logDirPath);
+                    }
+                } else {
+                    logDir = Files.createTempDirectory("codeinspect-logs-").toFile();
+                }
+            } catch (IOException e) {
+                throw new CodeInspectException(e);
+            }
+            System.out.println("Command logs are written to: " + logDir.getAbsolutePath());
+        }
+        return logDir;
+    }
+
+    public synchronized File getWorkspaceDir() throws CodeInspectException {
+        if (workspaceDir == null) {
+            try {
+                workspaceDir = Files.createTempDirectory("codeinspect-scan-").toFile();
+            } catch (IOException e) {
+                throw new CodeInspectException(e);
+            }
+        }
+        return workspaceDir;
+    }
+
+    synchronized void cleanup() {
+        findingStream.close(false);
+        if (workspaceDir != null) {
+            deleteRecursively(workspaceDir);
+            workspaceDir = null;
+        }
+    }
+
+    File newLogFile(String label) throws CodeInspectException {
+        return new File(getLogDir(), label.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" +
+                logFileCount.incrementAndGet() + ".log");
+    }
+
+    public CodeInspectChangeSet getChangeSet() {
+        return changeSet;
+    }
+
+    public synchronized CodeInspectManifest getManifest() {
+        if (manifest == null) {
+            manifest = new CodeInspectManifest(scanDir, SourceTreeWalker.getSkippedDirs());
+        }
+        return manifest;
+    }
+
+    FingerprintEngine getFingerprintEngine() {
+        return fingerprintEngine;
+    }
+
+    SnippetCache getSnippetCache() {
+        return snippetCache;
+    }
+
+    FindingStream getFindingStream() {
+        return findingStream;
+    }
+
+    CommandUsageReport getUsageReport() {
+        return usageReport;
+    }
+
     public String getBuildScript() {
         return buildScript;
     }
@@ -84,6 +228,10 @@ public final class CodeInspectConfig {
         return lang;
     }
 
+    public List<Lang> getLangs() {
+        return langs;
+    }
+
     public CodeInspect.Context getContext() {
         return context;
     }
@@ -101,45 +249,64 @@ public final class CodeInspectConfig {
     }
 
     void init() {
-        if (gitCredential == null) {
+        if (workDir == null) {
+            workDir = new File(System.getProperty("user.dir"));
+        }
+        if (gitCredential == null && envDefaults) {
             gitCredential = buildGitCredentialFromEnv();
         }
-        if (gitRepo == null) {
+        if (gitRepo == null && envDefaults) {
             gitRepo = buildGitRepoFromEnv();
         }
         if (gitRepo != null) {
-            gitRepo.cloneRepo(gitCredential);
+            gitRepo.cloneRepo(gitCredential, workDir, buildSparseDirs(), usageReport);
         } else {
-            gitRepo = new GitRepo();
+            gitRepo = new GitRepo(workDir);
         }
-        if (project == null) {
+        if (project == null && envDefaults) {
             project = CodeInspectEnv.CODEINSPECT_PROJECT.getAsString();
-            if (project == null || project.isEmpty()) {
-                if (gitRepo != null) {
-                    project = gitRepo.getGitRepoSlug();
-                } else {
-                    project = "CodeInspect_" + new SimpleDateFormat("yyyy_MM_dd_HH_mm_ss_SSS").format(new Date().getTime());
-                }
+        }
+        if (project == null || project.isEmpty()) {
+            if (gitRepo != null) {
+                project = gitRepo.getGitRepoSlug();
+            } else {
+                project = "CodeInspect_" + new SimpleDateFormat("yyyy_MM_dd_HH_mm_ss_SSS").format(new Date().getTime());
             }
         }
-        if (scanDirPath == null) {
+        if (scanDirPath == null && envDefaults) {
             scanDirPath = buildScanDirPathFromEnvOrCurrentDir();
         }
         if (scanDirPath != null) {
             scanDir = new File(scanDirPath);
+            if (!scanDir.isAbsolute()) {
+                scanDir = new File(workDir, scanDirPath);
+            }
         } else {
-            scanDir = new File(System.getProperty("user.dir"));
+            scanDir = workDir;
+        }
+        if (baseRef == null && envDefaults) {
+            baseRef = CodeInspectEnv.CODEINSPECT_GIT_BASE.getAsString();
+        }
+        if (baseRef != null && !baseRef.isEmpty()) {
+            changeSet = gitRepo.getChangeSet(gitCredential, workDir, baseRef, usageReport);
+            System.out.println("Scanning " + changeSet.getChangedFileCount() + " file(s) changed since " +
+                    changeSet.getBaseCommit());
         }
         if (lang == null) {
-            lang = buildLangFromEnvOrContent(scanDir);
+            langs = buildLangsFromEnvOrContent();
+            if (langs.size() > 0) {
+                lang = langs.get(0);
+            }
+        } else if (langs == null) {
+            langs = Collections.singletonList(lang);
         }
-        if (context == null) {
+        if (context == null && envDefaults) {
             context = buildContextFromEnv();
         }
-        if (tool == null) {
+        if (tool == null && envDefaults) {
             tool = CodeInspectEnv.CODEINSPECT_TOOL.getAsString();
         }
-        if (buildScript == null) {
+        if (buildScript == null && envDefaults) {
             buildScript = CodeInspectEnv.CODEINSPECT_BUILDSCRIPT.getAsString();
         }
     }
@@ -150,9 +317,9 @@ public final class CodeInspectConfig {
 
     private String buildScanDirPathFromEnvOrCurrentDir() {
         String scanDirPath = CodeInspectEnv.CODEINSPECT_DIR.getAsString();
-        String currentPath = System.getProperty("user.dir");
+        String currentPath = workDir.getAbsolutePath();
         if (scanDirPath != null && !scanDirPath.startsWith("/")) {
-            File scanDir = new File(scanDirPath);
+            File scanDir = new File(workDir, scanDirPath);
             if (scanDir.exists() && scanDir.isDirectory() && scanDir.getAbsolutePath().startsWith(currentPath)) {
                 return scanDirPath;
             }
@@ -160,7 +327,51 @@ public final class CodeInspectConfig {
         return null;
     }
 
-    private synchronized GitCredential buildGitCredentialFromEnv() {
+    static void deleteRecursively(File dir) {
+        if (!dir.exists()) {
+            return;
+        }
+        try {
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                    Files.delete(d);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private List<String> buildSparseDirs() {
+        if (envDefaults) {
+            sparse = CodeInspectEnv.CODEINSPECT_GIT_SPARSE.getAsBoolean();
+        }
+        if (!sparse) {
+            return null;
+        }
+        String sparseDirPath = scanDirPath;
+        if (sparseDirPath == null && envDefaults) {
+            sparseDirPath = CodeInspectEnv.CODEINSPECT_DIR.getAsString();
+        }
+        if (sparseDirPath == null) {
+            return null;
+        }
+        Path sparseDir = Paths.get(sparseDirPath).normalize();
+        if (sparseDir.isAbsolute() || sparseDir.toString().isEmpty() || sparseDir.startsWith("..")) {
+            return null;
+        }
+        return Collections.singletonList(sparseDir.toString().replace(File.separatorChar, '/'));
+    }
+
+    static GitCredential buildGitCredentialFromEnv() {
         String gitUsername = CodeInspectEnv.CODEINSPECT_GIT_USERNAME.getAsString();
         String gitAccessToken = CodeInspectEnv.CODEINSPECT_GIT_TOKEN.getAsString();
         String sshPrivateKeyFilePath = CodeInspectEnv.CODEINSPECT_GIT_SSHKEY.getAsString();
@@ -9,15 +9,33 @@ enum CodeInspectEnv {
     CODEINSPECT_PROJECT("Project name of the scan [If not set, will use repo slug or sets a random name with TimeStamp]"),
     CODEINSPECT_DIR("Specific directory inside the current directory to be scanned"),
     CODEINSPECT_CONTEXT("Type of scan [SAST or SCA - Does both by default]"),
-    CODEINSPECT_LANG("Target language to be scanned [" + langAsList() + " - if not specified, detects from source]."),
+    CODEINSPECT_LANG("Target language(s) to be scanned, comma separated [" + langAsList() + " - if not specified, detects from source]."),
+    CODEINSPECT_MULTILANG("Scan every detected language above the threshold instead of only the dominant one [TRUE or FALSE - FALSE by default]"),
+    CODEINSPECT_LANG_THRESHOLD("Minimum share of source files (in percentage) for a detected language to be scanned in multi-language mode [10 by default]"),
+    CODEINSPECT_LANG_SAMPLING("Detects languages from a breadth-first sample of files, counting every file only when the sample is too close to call [TRUE or FALSE - FALSE by default]"),
+    CODEINSPECT_SKIP_DIRS("Comma separated directory names skipped while detecting languages, in addition to hidden and .gitignore'd paths [node_modules, bower_components, target, build, dist, out, vendor, __pycache__, venv by default]"),
     CODEINSPECT_BUILDSCRIPT("Any script that needs to be run before scan."),
     CODEINSPECT_TOOL("One of the available tool's name to be used specifically"),
+    CODEINSPECT_COMMAND_TIMEOUT("Maximum time in minutes for any single command run during the scan [No limit by default]"),
+    CODEINSPECT_SCANNER_TIMEOUT("Maximum time in minutes for each scanner, including the parsing of its results, and for each stage it depends on, after which it is stopped and the scanner is marked as timed out [No limit by default]"),
+    CODEINSPECT_LOG_DIR("Directory to which the full output of every command is written [Defaults to a temporary directory]"),
+    CODEINSPECT_USAGE_REPORT("File to which the wall time, CPU time and peak memory of every command is written as JSON [Defaults to usage.json in the log directory]"),
+    CODEINSPECT_FINDINGS_FILE("File to which every finding is appended as a line of JSON as soon as its scanner reports it, including findings of scanners that later time out. A later duplicate that ranks higher by priority, title or description is appended again with the same key and supersedes the earlier line [Not written by default]"),
+    CODEINSPECT_THREADS("Maximum number of scanners to be run in parallel [Defaults to the number of available processors]"),
     CODEINSPECT_GIT_REPO("Git repository URI if source is not available in current directory"),
     CODEINSPECT_GIT_BRANCH("The branch in the repository to be scanned"),
     CODEINSPECT_GIT_COMMIT("The commit hash to be checked out and scanned"),
+    CODEINSPECT_GIT_BASE("Base ref or commit to compare against, limiting scanners and findings to the files and lines changed since it"),
+    CODEINSPECT_GIT_CACHE("Directory of bare mirrors from which repositories are cloned and incrementally updated [Clones directly from the remote by default]"),
+    CODEINSPECT_GIT_SPARSE("Checks out only CODEINSPECT_DIR and the build files above it using a blobless partial clone when set to TRUE"),
     CODEINSPECT_GIT_USERNAME("The username of the git account to perform a HTTP based clone"),
     CODEINSPECT_GIT_TOKEN("The password or access token of the git account to perform a HTTP based clone"),
-    CODEINSPECT_GIT_SSHKEY("The SSH private key file path to perform SSH based clone");
+    CODEINSPECT_GIT_SSHKEY("The SSH private key file path to perform SSH based clone"),
+    CODEINSPECT_SERVER_PORT("Runs CodeInspect as a daemon accepting scan jobs over HTTP on this local port"),
+    CODEINSPECT_SERVER_TOKEN("Bearer token every request to the daemon must carry in its Authorization header [Required to run as a daemon]"),
+    CODEINSPECT_SERVER_GIT_HOSTS("Comma separated git hosts to which the daemon may send its CODEINSPECT_GIT_* credentials when cloning a job's repository [Jobs clone anonymously by default]"),
+    CODEINSPECT_SERVER_JOBS("Maximum number of scan jobs the daemon runs at the same time [Defaults to 1]"),
+    CODEINSPECT_SERVER_DIR("Directory under which the daemon checks out repositories for scan jobs [Defaults to a temporary directory]");
 
     private final String definition;
 
@@ -1,6 +1,6 @@
 package me.shib.security.codeinspect;
 
-public final class CodeInspectException extends RuntimeException {
+public class CodeInspectException extends RuntimeException {
     public CodeInspectException(String message) {
         super(message);
     }
@@ -0,0 +1,250 @@
+package me.shib.security.codeinspect;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+final class CodeInspectExecutor {
+
+    private final int threads;
+    private final long scannerTimeoutMillis;
+
+    CodeInspectExecutor(int threads, long scannerTimeoutMillis) {
+        if (threads < 1) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        this.threads = threads;
+        this.scannerTimeoutMillis = scannerTimeoutMillis;
+    }
+
+    static CodeInspectExecutor fromEnv() {
+        Integer threads = CodeInspectEnv.CODEINSPECT_THREADS.getAsInteger();
+        if (threads == null) {
+            threads = 0;
+        }
+        Integer scannerTimeoutMinutes = CodeInspectEnv.CODEINSPECT_SCANNER_TIMEOUT.getAsInteger();
+        if (scannerTimeoutMinutes == null) {
+            scannerTimeoutMinutes = 0;
+        }
+        return new CodeInspectExecutor(threads, TimeUnit.MINUTES.toMillis(scannerTimeoutMinutes));
+    }
+
+    private static Map<String, CodeInspectStage> collectStages(CodeInspectConfig config, List<CodeInspect> scanners)
+            throws CodeInspectException {
+        Map<String, CodeInspectStage> stages = new LinkedHashMap<>();
+        CodeInspectStage buildStage = CodeInspect.getBuildStage(config);
+        stages.put(buildStage.getName(), buildStage);
+        for (CodeInspect codeinspect : scanners) {
+            for (CodeInspectStage stage : codeinspect.getStages()) {
+                if (!stages.containsKey(stage.getName())) {
+                    stages.put(stage.getName(), stage);
+                }
+            }
+        }
+        for (CodeInspectStage stage : stages.values()) {
+            for (String dependency : stage.getDependencies()) {
+                if (!stages.containsKey(dependency)) {
+                    throw new CodeInspectException("Unknown stage " + dependency + " required by " + stage);
+                }
+            }
+        }
+        return stages;
+    }
+
+    private static CompletionException toFailure(String name, Exception e) {
+        if (e instanceof CodeInspectTimeoutException) {
+            System.out.println(name + " timed out: " + e.getMessage());
+            return new CompletionException(new CodeInspectTimeoutException(name + " timed out: " + e.getMessage()));
+        }
+        e.printStackTrace();
+        return new CompletionException(new CodeInspectException(name + " failed: " + e.getMessage()));
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static CompletableFuture<Void> allOf(Map<String, CompletableFuture<Void>> stageFutures,
+                                                 Collection<String> names) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String name : names) {
+            futures.add(stageFutures.get(name));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private <T> CompletableFuture<T> runWithDeadline(final String name, final Callable<T> task,
+                                                     final Executor executor,
+                                                     final ScheduledExecutorService deadlines) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Thread worker = Thread.currentThread();
+                final boolean[] running = {true};
+                ScheduledFuture<?> deadline = null;
+                if (scannerTimeoutMillis > 0) {
+                    deadline = deadlines.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            String message = name + " timed out after " +
+                                    TimeUnit.MILLISECONDS.toMinutes(scannerTimeoutMillis) + " minute(s)";
+                            if (future.completeExceptionally(new CodeInspectTimeoutException(message))) {
+                                System.out.println(message);
+                                synchronized (running) {
+                                    if (running[0]) {
+                                        worker.interrupt();
+                                    }
+                                }
+                            }
+                        }
+                    }, scannerTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    if (!future.isDone()) {
+                        future.completeExceptionally(toFailure(name, e));
+                    }
+                } finally {
+                    if (deadline != null) {
+                        deadline.cancel(false);
+                    }
+                    synchronized (running) {
+                        running[0] = false;
+                    }
+                    Thread.interrupted();
+                }
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<Void> schedule(final CodeInspectStage stage, Map<String, CodeInspectStage> stages,
+                                             Map<String, CompletableFuture<Void>> stageFutures,
+                                             Set<String> visiting, final Executor executor,
+                                             final ScheduledExecutorService deadlines) {
+        CompletableFuture<Void> future = stageFutures.get(stage.getName());
+        if (future != null) {
+            return future;
+        }
+        if (!visiting.add(stage.getName())) {
+            throw new CodeInspectException("Cyclic stage dependency found at " + stage);
+        }
+        for (String dependency : stage.getDependencies()) {
+            schedule(stages.get(dependency), stages, stageFutures, visiting, executor, deadlines);
+        }
+        visiting.remove(stage.getName());
+        future = allOf(stageFutures, stage.getDependencies()).thenCompose(new Function<Void, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(Void v) {
+                return runWithDeadline("Stage " + stage, new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        System.out.println("Running stage: " + stage);
+                        stage.run();
+                        return null;
+                    }
+                }, executor, deadlines);
+            }
+        });
+        stageFutures.put(stage.getName(), future);
+        return future;
+    }
+
+    List<CodeInspectResult> execute(final CodeInspectConfig config, List<CodeInspect> scanners) throws CodeInspectException {
+        List<CodeInspectResult> results = new ArrayList<>();
+        if (scanners.isEmpty()) {
+            return results;
+        }
+        Map<String, CodeInspectStage> stages = collectStages(config, scanners);
+        int poolSize = Math.min(threads, scanners.size() + stages.size());
+        System.out.println("Running " + scanners.size() + " scanner(s) and " + stages.size() +
+                " stage(s) with " + poolSize + " worker(s)");
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Map<String, CompletableFuture<Void>> stageFutures = new HashMap<>();
+            for (CodeInspectStage stage : stages.values()) {
+                schedule(stage, stages, stageFutures, new HashSet<String>(), executor, deadlines);
+            }
+            final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+            List<CompletableFuture<CodeInspectResult>> scannerFutures = new ArrayList<>();
+            for (final CodeInspect codeinspect : scanners) {
+                Set<String> prerequisites = new LinkedHashSet<>();
+                prerequisites.add(CodeInspectStage.BUILD);
+                for (CodeInspectStage stage : codeinspect.getStages()) {
+                    prerequisites.add(stage.getName());
+                }
+                CompletableFuture<CodeInspectResult> future = allOf(stageFutures, prerequisites)
+                        .thenCompose(new Function<Void, CompletionStage<CodeInspectResult>>() {
+                            @Override
+                            public CompletionStage<CodeInspectResult> apply(Void v) {
+                                return runWithDeadline("Scanner " + codeinspect.getTool(),
+                                        new Callable<CodeInspectResult>() {
+                                            @Override
+                                            public CodeInspectResult call() throws Exception {
+                                                System.out.println("Now running scanner: " + codeinspect.getTool());
+                                                codeinspect.startDeadline(scannerTimeoutMillis);
+                                                codeinspect.scan();
+                                                System.out.println("Completed scanner: " + codeinspect.getTool());
+                                                return codeinspect.getResult();
+                                            }
+                                        }, executor, deadlines);
+                            }
+                        })
+                        .handle(new BiFunction<CodeInspectResult, Throwable, CodeInspectResult>() {
+                            @Override
+                            public CodeInspectResult apply(CodeInspectResult result, Throwable t) {
+                                if (t == null) {
+                                    result.complete();
+                                    return result;
+                                }
+                                if (unwrap(t) instanceof CodeInspectTimeoutException) {
+                                    System.out.println("Marking scanner as timed out: " + codeinspect.getTool());
+                                    codeinspect.getResult().setTimedOut(true);
+                                    codeinspect.getResult().complete();
+                                    return codeinspect.getResult();
+                                }
+                                if (t instanceof CompletionException) {
+                                    throw (CompletionException) t;
+                                }
+                                throw new CompletionException(t);
+                            }
+                        });
+                future.whenComplete(new BiConsumer<CodeInspectResult, Throwable>() {
+                    @Override
+                    public void accept(CodeInspectResult result, Throwable t) {
+                        if (t != null) {
+                            firstFailure.completeExceptionally(t);
+                        }
+                    }
+                });
+                scannerFutures.add(future);
+            }
+            CompletableFuture.anyOf(CompletableFuture.allOf(scannerFutures.toArray(new CompletableFuture<?>[0])),
+                    firstFailure).get();
+            for (CompletableFuture<CodeInspectResult> future : scannerFutures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof CodeInspectException) {
+                throw (CodeInspectException) cause;
+            }
+            throw new CodeInspectException(cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CodeInspectException(e);
+        } finally {
+            deadlines.shutdownNow();
+            executor.shutdownNow();
+        }
+        return results;
+    }
+}
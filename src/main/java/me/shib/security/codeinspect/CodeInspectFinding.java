@@ -1,6 +1,10 @@
 package me.shib.security.codeinspect;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class CodeInspectFinding {
 
@@ -12,15 +16,16 @@ public final class CodeInspectFinding {
     private final Map<String, String> fields;
     private final Set<String> keys;
     private final Set<String> tags;
-    private String description;
+    private volatile String description;
+    private transient volatile FindingKey findingKey;
 
     CodeInspectFinding(CodeInspectResult result, String title, CodeInspectPriority priority) {
         this.result = result;
         this.title = title;
         this.priority = priority;
-        this.fields = new LinkedHashMap<>();
-        this.keys = new HashSet<>();
-        this.tags = new HashSet<>();
+        this.fields = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+        this.keys = ConcurrentHashMap.newKeySet();
+        this.tags = ConcurrentHashMap.newKeySet();
     }
 
     public void update() {
@@ -84,9 +89,11 @@ public final class CodeInspectFinding {
     public String getDescription() {
         if (description == null) {
             StringBuilder content = new StringBuilder();
-            for (String key : fields.keySet()) {
-                content.append(" * **").append(key).append(":** ")
-                        .append(fields.get(key)).append("\n");
+            synchronized (fields) {
+                for (Map.Entry<String, String> field : fields.entrySet()) {
+                    content.append(" * **").append(field.getKey()).append(":** ")
+                            .append(field.getValue()).append("\n");
+                }
             }
             return content.toString();
         }
@@ -117,6 +124,31 @@ public final class CodeInspectFinding {
         return result.getScanDirPath();
     }
 
+    CodeInspectResult getResult() {
+        return result;
+    }
+
+    FindingKey getFindingKey() {
+        return findingKey;
+    }
+
+    void setFindingKey(FindingKey findingKey) {
+        this.findingKey = findingKey;
+    }
+
+    JsonObject toJson(Gson gson) {
+        JsonObject findingObject = gson.toJsonTree(this).getAsJsonObject();
+        findingObject.addProperty("description", getDescription());
+        findingObject.addProperty("project", getProject());
+        findingObject.addProperty("lang", getLang().name());
+        findingObject.addProperty("context", getContext().name());
+        findingObject.addProperty("scanner", getScanner());
+        if (findingKey != null) {
+            findingObject.addProperty("key", findingKey.toString());
+        }
+        return findingObject;
+    }
+
     @Override
     public String toString() {
         StringBuilder content = new StringBuilder();
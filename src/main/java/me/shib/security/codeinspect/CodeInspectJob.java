@@ -0,0 +1,148 @@
+package me.shib.security.codeinspect;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+final class CodeInspectJob {
+
+    private final String id;
+    private final Request request;
+    private final Date createdAt;
+    private Status status;
+    private String error;
+    private Date startedAt;
+    private Date completedAt;
+    private int findingCount;
+    private List<CommandUsage> commandUsage;
+    private transient List<CodeInspectFinding> findings;
+
+    CodeInspectJob(Request request) throws CodeInspectException {
+        if (request == null || request.repo == null || request.repo.isEmpty()) {
+            throw new CodeInspectException("A git repository is required to create a scan job");
+        }
+        request.toLang();
+        request.toContext();
+        request.toDir();
+        this.id = UUID.randomUUID().toString();
+        this.request = request;
+        this.createdAt = new Date();
+        this.status = Status.QUEUED;
+        this.findings = new ArrayList<>();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    synchronized Status getStatus() {
+        return status;
+    }
+
+    synchronized void start() {
+        this.status = Status.RUNNING;
+        this.startedAt = new Date();
+    }
+
+    synchronized void complete(List<CodeInspectFinding> findings, List<CommandUsage> commandUsage) {
+        this.findings = new ArrayList<>(findings);
+        this.findingCount = findings.size();
+        this.commandUsage = commandUsage;
+        this.status = Status.COMPLETED;
+        this.completedAt = new Date();
+    }
+
+    synchronized void fail(String error) {
+        this.error = error;
+        this.status = Status.FAILED;
+        this.completedAt = new Date();
+    }
+
+    CodeInspectConfig toConfig(File workDir, Set<String> credentialHosts) throws CodeInspectException {
+        GitRepo gitRepo = new GitRepo(request.repo, request.branch, request.commit);
+        GitCredential gitCredential = null;
+        if (credentialHosts.contains(gitRepo.getHost().toLowerCase())) {
+            gitCredential = CodeInspectConfig.buildGitCredentialFromEnv();
+        }
+        return new CodeInspectConfig(request.project, request.toDir(), request.toLang(), request.toContext(),
+                request.tool, gitRepo, gitCredential, workDir, request.base, request.sparse);
+    }
+
+    synchronized JsonObject toJson(Gson gson, boolean includeFindings) {
+        JsonObject job = gson.toJsonTree(this).getAsJsonObject();
+        if (includeFindings) {
+            JsonArray findingsArray = new JsonArray();
+            for (CodeInspectFinding finding : findings) {
+                findingsArray.add(finding.toJson(gson));
+            }
+            job.add("findings", findingsArray);
+        }
+        return job;
+    }
+
+    enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    static final class Request {
+        private String repo;
+        private String branch;
+        private String commit;
+        private String lang;
+        private String context;
+        private String tool;
+        private String project;
+        private String dir;
+        private String base;
+        private boolean sparse;
+
+        private String toDir() throws CodeInspectException {
+            if (dir == null || dir.isEmpty()) {
+                return null;
+            }
+            Path dirPath;
+            try {
+                dirPath = Paths.get(dir);
+            } catch (InvalidPathException e) {
+                throw new CodeInspectException("Invalid directory: " + dir);
+            }
+            if (dirPath.isAbsolute()) {
+                throw new CodeInspectException("Directory must be relative to the repository: " + dir);
+            }
+            for (Path name : dirPath) {
+                if (name.toString().equals("..")) {
+                    throw new CodeInspectException("Directory must not leave the repository: " + dir);
+                }
+            }
+            return dirPath.normalize().toString();
+        }
+
+        private Lang toLang() throws CodeInspectException {
+            if (lang == null || lang.isEmpty()) {
+                return null;
+            }
+            try {
+                return Lang.valueOf(lang);
+            } catch (IllegalArgumentException e) {
+                throw new CodeInspectException("Unknown language: " + lang);
+            }
+        }
+
+        private CodeInspect.Context toContext() throws CodeInspectException {
+            if (context == null || context.isEmpty()) {
+                return null;
+            }
+            try {
+                return CodeInspect.Context.valueOf(context.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new CodeInspectException("Unknown context: " + context);
+            }
+        }
+    }
+}
@@ -1,40 +1,65 @@
 package me.shib.security.codeinspect;
 
-import me.shib.steward.Steward;
-import me.shib.steward.StewardData;
-
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 final class CodeInspectLauncher {
 
-    private static void processResults(CodeInspectConfig config, List<CodeInspect> inspectors) {
+    static void addFindingSinks(CodeInspectConfig config) {
+        config.getFindingStream().addSink(new ConsoleFindingSink());
+        config.getFindingStream().addSink(new StewardFindingSink(config));
+    }
+
+    static void reportUsage(CodeInspectConfig config) {
+        CommandUsageReport usageReport = config.getUsageReport();
+        System.out.println(usageReport.getSummary());
         try {
-            List<CodeInspectFinding> findings = new ArrayList<>();
-            for (CodeInspect inspector : inspectors) {
-                System.out.println("Findings from " + inspector.getTool() + " [" + inspector.getContext() + "]: " +
-                        inspector.getFindings().size());
-                findings.addAll(inspector.getFindings());
+            String usageReportPath = CodeInspectEnv.CODEINSPECT_USAGE_REPORT.getAsString();
+            File usageReportFile;
+            if (usageReportPath != null) {
+                usageReportFile = new File(usageReportPath);
+            } else {
+                usageReportFile = new File(config.getLogDir(), "usage.json");
             }
-            StewardData data = StewardAdapter.toStewardData(config, findings);
-            Steward.process(data);
-        } catch (Exception e) {
-            throw new CodeInspectException(e);
+            usageReport.writeTo(usageReportFile);
+            System.out.println("Resource usage written to: " + usageReportFile.getAbsolutePath());
+        } catch (IOException | CodeInspectException e) {
+            e.printStackTrace();
         }
     }
 
     public static void main(String[] args) {
-        CodeInspectConfig config = CodeInspectConfig.getInstance();
-        List<CodeInspect> scanners = CodeInspect.getScanners(config);
-        for (CodeInspect codeinspect : scanners) {
-            System.out.println("Now running scanner: " + codeinspect.getTool());
+        if (CodeInspectEnv.CODEINSPECT_SERVER_PORT.getAsString() != null) {
             try {
-                codeinspect.scan();
-            } catch (Exception e) {
+                CodeInspectServer.fromEnv().start();
+            } catch (IOException | CodeInspectException e) {
                 e.printStackTrace();
                 System.exit(1);
             }
+            return;
+        }
+        CodeInspectConfig config = CodeInspectConfig.fromEnv();
+        addFindingSinks(config);
+        String findingsFilePath = CodeInspectEnv.CODEINSPECT_FINDINGS_FILE.getAsString();
+        if (findingsFilePath != null) {
+            config.getFindingStream().addSink(new JsonFindingSink(new File(findingsFilePath)));
+        }
+        List<CodeInspect> scanners = CodeInspect.getScanners(config);
+        try {
+            CodeInspectExecutor.fromEnv().execute(config, scanners);
+        } catch (CodeInspectException e) {
+            e.printStackTrace();
+            reportUsage(config);
+            config.cleanup();
+            System.exit(1);
+            return;
+        }
+        try {
+            config.getFindingStream().close(true);
+        } finally {
+            reportUsage(config);
+            config.cleanup();
         }
-        processResults(config, scanners);
     }
 }
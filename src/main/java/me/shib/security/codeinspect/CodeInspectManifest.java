@@ -0,0 +1,125 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.*;
+
+public final class CodeInspectManifest {
+
+    private static final transient Set<String> buildMarkers = new HashSet<>(Arrays.asList(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts",
+            "Gemfile", "Gemfile.lock", "package.json", "package-lock.json", "npm-shrinkwrap.json",
+            "yarn.lock", "bower.json"));
+
+    private final Path baseDir;
+    private final Set<String> skippedDirs;
+    private Index index;
+
+    CodeInspectManifest(File baseDir, Set<String> skippedDirs) {
+        this.baseDir = baseDir.toPath().toAbsolutePath().normalize();
+        this.skippedDirs = skippedDirs;
+    }
+
+    private synchronized Index getIndex() {
+        if (index == null) {
+            FileInventory inventory = FileInventory.forDirectory(baseDir.toFile());
+            index = new Index(inventory, skippedDirs);
+            System.out.println("Found " + index.fileCount + " file(s) to scan from " + inventory.getSource());
+        }
+        return index;
+    }
+
+    private static void addPath(Map<String, List<String>> index, String key, String path) {
+        List<String> paths = index.get(key);
+        if (paths == null) {
+            paths = new ArrayList<>();
+            index.put(key, paths);
+        }
+        paths.add(path);
+    }
+
+    String getRelativePath(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(baseDir)) {
+            return null;
+        }
+        return baseDir.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    public int getFileCount() {
+        return getIndex().fileCount;
+    }
+
+    public int getFileCount(String extension) {
+        List<String> paths = getIndex().filesByExtension.get(extension.toLowerCase());
+        return paths == null ? 0 : paths.size();
+    }
+
+    int getSourceFileCount(String extension) {
+        Integer count = getIndex().sourceCountByExtension.get(extension.toLowerCase());
+        return count == null ? 0 : count;
+    }
+
+    public List<String> getFiles(String extension) {
+        List<String> paths = getIndex().filesByExtension.get(extension.toLowerCase());
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(paths);
+    }
+
+    public List<String> getBuildFiles(String marker) {
+        List<String> paths = getIndex().filesByBuildMarker.get(marker);
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(paths);
+    }
+
+    public boolean hasBuildFile(String marker) {
+        return getIndex().filesByBuildMarker.containsKey(marker);
+    }
+
+    public boolean hasBuildFile(File dir, String marker) {
+        return contains(new File(dir, marker));
+    }
+
+    public boolean contains(File file) {
+        return getRelativePath(file) != null && Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS);
+    }
+
+    public long getSize(File file) {
+        return contains(file) ? file.length() : -1;
+    }
+
+    private static final class Index {
+        private final int fileCount;
+        private final Map<String, List<String>> filesByExtension;
+        private final Map<String, List<String>> filesByBuildMarker;
+        private final Map<String, Integer> sourceCountByExtension;
+
+        private Index(FileInventory inventory, Set<String> skippedDirs) {
+            this.fileCount = inventory.getEntries().size();
+            this.filesByExtension = new HashMap<>();
+            this.filesByBuildMarker = new HashMap<>();
+            this.sourceCountByExtension = new HashMap<>();
+            for (FileInventory.Entry entry : inventory.getEntries()) {
+                String name = entry.getName();
+                int extensionPos = name.lastIndexOf('.');
+                if (extensionPos >= 0) {
+                    String extension = name.substring(extensionPos + 1).toLowerCase();
+                    addPath(filesByExtension, extension, entry.getPath());
+                    if (!SourceTreeWalker.isSkippedPath(entry.getPath(), skippedDirs)) {
+                        Integer count = sourceCountByExtension.get(extension);
+                        sourceCountByExtension.put(extension, count == null ? 1 : count + 1);
+                    }
+                }
+                if (buildMarkers.contains(name)) {
+                    addPath(filesByBuildMarker, name, entry.getPath());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package me.shib.security.codeinspect;
+
+public interface CodeInspectProvider {
+
+    CodeInspect create(CodeInspectConfig config) throws CodeInspectException;
+
+}
@@ -0,0 +1,54 @@
+package me.shib.security.codeinspect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+final class CodeInspectRegistry {
+
+    private static final transient List<CodeInspectProvider> providers = discoverProviders();
+
+    private final CodeInspectConfig config;
+
+    CodeInspectRegistry(CodeInspectConfig config) {
+        this.config = config;
+    }
+
+    private static List<CodeInspectProvider> discoverProviders() {
+        List<CodeInspectProvider> providers = new ArrayList<>();
+        for (CodeInspectProvider provider : ServiceLoader.load(CodeInspectProvider.class,
+                CodeInspectProvider.class.getClassLoader())) {
+            providers.add(provider);
+        }
+        return Collections.unmodifiableList(providers);
+    }
+
+    private boolean isQualified(CodeInspect codeinspect) {
+        if (codeinspect.getLang() != null && config.getLangs().contains(codeinspect.getLang())) {
+            if (config.getTool() == null || config.getTool().isEmpty() ||
+                    config.getTool().equalsIgnoreCase(codeinspect.getTool())) {
+                return config.getContext() == null || config.getContext() == codeinspect.getContext();
+            }
+        }
+        return false;
+    }
+
+    List<CodeInspect> getQualified() {
+        List<CodeInspect> qualifiedClasses = new ArrayList<>();
+        System.out.println("Attempting to run for Language(s): " + config.getLangs());
+        if (config.getLang() != null) {
+            for (CodeInspectProvider provider : providers) {
+                try {
+                    CodeInspect codeinspect = provider.create(config);
+                    if (isQualified(codeinspect)) {
+                        qualifiedClasses.add(codeinspect);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return qualifiedClasses;
+    }
+}
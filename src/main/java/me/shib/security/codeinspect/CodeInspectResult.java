@@ -1,30 +1,41 @@
 package me.shib.security.codeinspect;
 
-import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 
 final class CodeInspectResult {
 
+    private final FindingStream findingStream;
     private final Lang lang;
     private final CodeInspect.Context context;
     private final String scanner;
     private final String scanDirPath;
-    private final Map<String, CodeInspectFinding> findingMap;
-    private String project;
+    private final ConcurrentMap<FindingKey, Ranking> rankings;
+    private final ReadWriteLock completionLock;
+    private volatile String project;
+    private volatile boolean timedOut;
+    private boolean completed;
 
-    CodeInspectResult(String project, Lang lang, CodeInspect.Context context, String scanner, String scanDirPath) {
+    CodeInspectResult(FindingStream findingStream, String project, Lang lang, CodeInspect.Context context,
+                      String scanner, String scanDirPath) {
+        this.findingStream = findingStream;
         this.project = project;
         this.lang = lang;
         this.context = context;
         this.scanner = scanner;
         this.scanDirPath = scanDirPath;
-        this.findingMap = new HashMap<>();
+        this.rankings = new ConcurrentHashMap<>();
+        this.completionLock = new ReentrantReadWriteLock();
     }
 
     CodeInspectFinding newFinding(String title, CodeInspectPriority priority) {
         return new CodeInspectFinding(this, title, priority);
     }
 
-    void updateFinding(CodeInspectFinding finding) {
+    void updateFinding(final CodeInspectFinding finding) {
         finding.addKey(project);
         finding.addTag(project);
         finding.addKey(lang.toString());
@@ -33,13 +44,47 @@ final class CodeInspectResult {
         finding.addTag(context.getLabel());
         finding.addKey(scanner);
         finding.addTag(scanner);
-        StringBuilder key = new StringBuilder();
-        List<String> keyList = new ArrayList<>(finding.getKeys());
-        Collections.sort(keyList);
-        for (String k : keyList) {
-            key.append(k).append(";");
+        FindingKey findingKey = FindingKey.of(FindingKey.canonicalize(finding.getKeys()));
+        finding.setFindingKey(findingKey);
+        final Ranking ranking = new Ranking(finding);
+        completionLock.readLock().lock();
+        try {
+            if (completed) {
+                System.out.println("Ignoring finding reported after " + scanner + " completed: " +
+                        finding.getTitle());
+                return;
+            }
+            rankings.compute(findingKey, new BiFunction<FindingKey, Ranking, Ranking>() {
+                @Override
+                public Ranking apply(FindingKey key, Ranking publishedRanking) {
+                    if (publishedRanking == null) {
+                        findingStream.publish(finding);
+                        return ranking;
+                    }
+                    if (ranking.compareTo(publishedRanking) < 0) {
+                        findingStream.supersede(finding);
+                        return ranking;
+                    }
+                    return publishedRanking;
+                }
+            });
+        } finally {
+            completionLock.readLock().unlock();
         }
-        findingMap.put(key.toString(), finding);
+    }
+
+    void complete() {
+        completionLock.writeLock().lock();
+        try {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            rankings.clear();
+        } finally {
+            completionLock.writeLock().unlock();
+        }
+        findingStream.complete(this);
     }
 
     String getProject() {
@@ -50,6 +95,14 @@ final class CodeInspectResult {
         this.project = project;
     }
 
+    boolean isTimedOut() {
+        return timedOut;
+    }
+
+    void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
     Lang getLang() {
         return lang;
     }
@@ -66,7 +119,28 @@ final class CodeInspectResult {
         return scanDirPath;
     }
 
-    List<CodeInspectFinding> getFindings() {
-        return new ArrayList<>(findingMap.values());
+    private static final class Ranking implements Comparable<Ranking> {
+        private final int rank;
+        private final String title;
+        private final FindingKey descriptionKey;
+
+        private Ranking(CodeInspectFinding finding) {
+            this.rank = finding.getPriority().getRank();
+            this.title = finding.getTitle();
+            this.descriptionKey = FindingKey.of(new String[]{finding.getDescription()});
+        }
+
+        @Override
+        public int compareTo(Ranking other) {
+            int comparison = Integer.compare(rank, other.rank);
+            if (comparison == 0) {
+                if (title == null || other.title == null) {
+                    comparison = title == null ? (other.title == null ? 0 : -1) : 1;
+                } else {
+                    comparison = title.compareTo(other.title);
+                }
+            }
+            return comparison != 0 ? comparison : descriptionKey.compareTo(other.descriptionKey);
+        }
     }
 }
@@ -0,0 +1,274 @@
+package me.shib.security.codeinspect;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+final class CodeInspectServer {
+
+    private static final transient Gson gson = new GsonBuilder().setPrettyPrinting()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
+    private static final transient String jobsPath = "/jobs";
+    private static final transient int maxRetainedJobs = 1000;
+    private static final transient String bearerPrefix = "Bearer ";
+    private static final transient String jsonContentType = "application/json";
+
+    private final HttpServer server;
+    private final File jobsDir;
+    private final ExecutorService jobExecutor;
+    private final Map<String, CodeInspectJob> jobs;
+    private final byte[] token;
+    private final Set<String> credentialHosts;
+
+    CodeInspectServer(int port, File jobsDir, int concurrentJobs, String token, Set<String> credentialHosts)
+            throws IOException {
+        if (token == null || token.isEmpty()) {
+            throw new CodeInspectException("A token is required to start the server");
+        }
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.credentialHosts = credentialHosts;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.jobsDir = jobsDir;
+        this.jobExecutor = Executors.newFixedThreadPool(concurrentJobs);
+        this.jobs = Collections.synchronizedMap(new LinkedHashMap<String, CodeInspectJob>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CodeInspectJob> eldest) {
+                CodeInspectJob.Status status = eldest.getValue().getStatus();
+                return size() > maxRetainedJobs &&
+                        (status == CodeInspectJob.Status.COMPLETED || status == CodeInspectJob.Status.FAILED);
+            }
+        });
+        this.server.createContext(jobsPath, new JobsHandler());
+    }
+
+    static CodeInspectServer fromEnv() throws IOException {
+        Integer port = CodeInspectEnv.CODEINSPECT_SERVER_PORT.getAsInteger();
+        if (port == null) {
+            throw new CodeInspectException("A valid port is required to start the server");
+        }
+        String jobsDirPath = CodeInspectEnv.CODEINSPECT_SERVER_DIR.getAsString();
+        File jobsDir;
+        if (jobsDirPath != null) {
+            jobsDir = new File(jobsDirPath);
+        } else {
+            jobsDir = new File(System.getProperty("java.io.tmpdir"), "codeinspect-jobs");
+        }
+        Integer concurrentJobs = CodeInspectEnv.CODEINSPECT_SERVER_JOBS.getAsInteger();
+        if (concurrentJobs == null || concurrentJobs < 1) {
+            concurrentJobs = 1;
+        }
+        Set<String> credentialHosts = new HashSet<>();
+        List<String> hosts = CodeInspectEnv.CODEINSPECT_SERVER_GIT_HOSTS.getAsList();
+        if (hosts != null) {
+            for (String host : hosts) {
+                if (!host.trim().isEmpty()) {
+                    credentialHosts.add(host.trim().toLowerCase());
+                }
+            }
+        }
+        return new CodeInspectServer(port, jobsDir, concurrentJobs,
+                CodeInspectEnv.CODEINSPECT_SERVER_TOKEN.getAsString(), credentialHosts);
+    }
+
+    void start() {
+        if (!jobsDir.exists() && !jobsDir.mkdirs()) {
+            throw new CodeInspectException("Unable to create jobs directory: " + jobsDir.getAbsolutePath());
+        }
+        server.start();
+        System.out.println("CodeInspect server listening on " + server.getAddress());
+    }
+
+    private CodeInspectJob submit(CodeInspectJob.Request request) throws CodeInspectException {
+        final CodeInspectJob job = new CodeInspectJob(request);
+        jobs.put(job.getId(), job);
+        jobExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                runJob(job);
+            }
+        });
+        return job;
+    }
+
+    private void runJob(CodeInspectJob job) {
+        System.out.println("Starting job: " + job.getId());
+        job.start();
+        File jobDir = new File(jobsDir, job.getId());
+        CodeInspectConfig config = null;
+        try {
+            if (!jobDir.mkdirs()) {
+                throw new CodeInspectException("Unable to create job directory: " + jobDir.getAbsolutePath());
+            }
+            config = job.toConfig(jobDir, credentialHosts);
+            final Map<FindingKey, CodeInspectFinding> findings = new LinkedHashMap<>();
+            CodeInspectLauncher.addFindingSinks(config);
+            config.getFindingStream().addSink(new FindingSink() {
+                @Override
+                public void accept(CodeInspectFinding finding) {
+                    findings.put(finding.getFindingKey(), finding);
+                }
+
+                @Override
+                public void supersede(CodeInspectFinding finding) {
+                    accept(finding);
+                }
+
+                @Override
+                public void complete(CodeInspectResult result) {
+                    if (result.isTimedOut()) {
+                        Iterator<CodeInspectFinding> iterator = findings.values().iterator();
+                        while (iterator.hasNext()) {
+                            if (iterator.next().getResult() == result) {
+                                iterator.remove();
+                            }
+                        }
+                    }
+                }
+
+                @Override
+                public void close(boolean completed) {
+                }
+            });
+            List<CodeInspect> scanners = CodeInspect.getScanners(config);
+            CodeInspectExecutor.fromEnv().execute(config, scanners);
+            config.getFindingStream().close(true);
+            job.complete(new ArrayList<>(findings.values()), config.getUsageReport().getUsages());
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.fail(e.getMessage());
+        } finally {
+            if (config != null) {
+                config.cleanup();
+            }
+            CodeInspectConfig.deleteRecursively(jobDir);
+        }
+        System.out.println("Finished job: " + job.getId() + " [" + job.getStatus() + "]");
+    }
+
+    private final class JobsHandler implements HttpHandler {
+
+        private void respond(HttpExchange exchange, int code, JsonElement content) throws IOException {
+            byte[] response = gson.toJson(content).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(code, response.length);
+            OutputStream os = exchange.getResponseBody();
+            os.write(response);
+            os.close();
+        }
+
+        private void respondError(HttpExchange exchange, int code, String message) throws IOException {
+            JsonObject error = new JsonObject();
+            error.addProperty("error", message);
+            respond(exchange, code, error);
+        }
+
+        private String readBody(HttpExchange exchange) throws IOException {
+            StringBuilder body = new StringBuilder();
+            BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8));
+            String line;
+            while ((line = br.readLine()) != null) {
+                body.append(line).append("\n");
+            }
+            br.close();
+            return body.toString();
+        }
+
+        private boolean isAuthorized(HttpExchange exchange) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith(bearerPrefix)) {
+                return false;
+            }
+            byte[] presented = authorization.substring(bearerPrefix.length()).trim().getBytes(StandardCharsets.UTF_8);
+            return MessageDigest.isEqual(presented, token);
+        }
+
+        private boolean isJson(HttpExchange exchange) {
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            return contentType != null && contentType.split(";")[0].trim().equalsIgnoreCase(jsonContentType);
+        }
+
+        private void createJob(HttpExchange exchange) throws IOException {
+            if (!isJson(exchange)) {
+                respondError(exchange, 415, "Content-Type must be " + jsonContentType);
+                return;
+            }
+            try {
+                CodeInspectJob.Request request = gson.fromJson(readBody(exchange), CodeInspectJob.Request.class);
+                CodeInspectJob job = submit(request);
+                respond(exchange, 202, job.toJson(gson, false));
+            } catch (JsonParseException | CodeInspectException e) {
+                respondError(exchange, 400, e.getMessage());
+            }
+        }
+
+        private void listJobs(HttpExchange exchange) throws IOException {
+            JsonArray jobArray = new JsonArray();
+            synchronized (jobs) {
+                for (CodeInspectJob job : jobs.values()) {
+                    jobArray.add(job.toJson(gson, false));
+                }
+            }
+            respond(exchange, 200, jobArray);
+        }
+
+        private void getJob(HttpExchange exchange, String id) throws IOException {
+            CodeInspectJob job = jobs.get(id);
+            if (job == null) {
+                respondError(exchange, 404, "No job found for id: " + id);
+                return;
+            }
+            respond(exchange, 200, job.toJson(gson, true));
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!isAuthorized(exchange)) {
+                    exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    respondError(exchange, 401, "A valid bearer token is required");
+                    return;
+                }
+                String path = exchange.getRequestURI().getPath();
+                String method = exchange.getRequestMethod();
+                if (path.equals(jobsPath) || path.equals(jobsPath + "/")) {
+                    if (method.equalsIgnoreCase("POST")) {
+                        createJob(exchange);
+                    } else if (method.equalsIgnoreCase("GET")) {
+                        listJobs(exchange);
+                    } else {
+                        respondError(exchange, 405, "Method not allowed: " + method);
+                    }
+                } else if (path.startsWith(jobsPath + "/") && !path.substring(jobsPath.length() + 1).contains("/")) {
+                    if (method.equalsIgnoreCase("GET")) {
+                        getJob(exchange, path.substring(jobsPath.length() + 1));
+                    } else {
+                        respondError(exchange, 405, "Method not allowed: " + method);
+                    }
+                } else {
+                    respondError(exchange, 404, "Not found: " + path);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                respondError(exchange, 500, e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
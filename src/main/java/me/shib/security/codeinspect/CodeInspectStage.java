@@ -0,0 +1,36 @@
+package me.shib.security.codeinspect;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public abstract class CodeInspectStage {
+
+    public static final String BUILD = "Build";
+
+    private final String name;
+    private final List<String> dependencies;
+
+    protected CodeInspectStage(String name, String... dependencies) {
+        if (name == null || name.isEmpty()) {
+            throw new CodeInspectException("Null or Empty stage name cannot be processed");
+        }
+        this.name = name;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    protected abstract void run() throws Exception;
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
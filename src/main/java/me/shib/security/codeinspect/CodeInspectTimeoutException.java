@@ -0,0 +1,9 @@
+package me.shib.security.codeinspect;
+
+public final class CodeInspectTimeoutException extends CodeInspectException {
+    private static final long serialVersionUID = 1L;
+
+    public CodeInspectTimeoutException(String message) {
+        super(message);
+    }
+}
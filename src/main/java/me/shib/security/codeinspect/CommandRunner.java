@@ -1,106 +1,310 @@
 package me.shib.security.codeinspect;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 final class CommandRunner {
 
-    private final transient String command;
-    private final transient StreamProcessor inputProcessor;
-    private final transient StreamProcessor errorProcessor;
+    private static final transient ExecutorService streamExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CommandRunner-Stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final transient List<String> command;
     private final transient StringBuilder streamContent;
     private final transient String label;
     private final transient File workDir;
     private transient Process process;
     private transient boolean showConsoleLog;
+    private transient long timeoutMillis;
+    private transient boolean timedOut;
+    private transient int tailSize;
+    private transient long lineCount;
+    private transient Deque<CapturedLine> tailLines;
+    private transient List<CapturedLine> retainedLines;
+    private transient List<Pattern> retainedPatterns;
+    private transient File logFile;
+    private transient Writer logWriter;
+    private transient File outputFile;
+    private transient CommandUsageReport usageReport;
+    private transient boolean childTimes;
 
-    CommandRunner(String command, File workDir, String label) {
-        this.command = command;
+    CommandRunner(List<String> command, File workDir, String label) {
+        if (command == null || command.isEmpty()) {
+            throw new CodeInspectException("Empty command cannot be processed");
+        }
+        this.command = new ArrayList<>(command);
         this.workDir = workDir;
-        this.inputProcessor = new StreamProcessor(this, StreamType.INPUT);
-        this.errorProcessor = new StreamProcessor(this, StreamType.ERROR);
         this.streamContent = new StringBuilder();
-        this.inputProcessor.start();
-        this.errorProcessor.start();
         this.showConsoleLog = true;
         this.label = label.toUpperCase();
+        Integer timeoutMinutes = CodeInspectEnv.CODEINSPECT_COMMAND_TIMEOUT.getAsInteger();
+        if (timeoutMinutes != null && timeoutMinutes > 0) {
+            this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        }
+    }
+
+    CommandRunner(String command, File workDir, String label) {
+        this(tokenize(command), workDir, label);
     }
 
     CommandRunner(String command, String label) {
         this(command, null, label);
     }
 
+    static List<String> tokenize(String command) {
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(command);
+        while (tokenizer.hasMoreTokens()) {
+            tokens.add(tokenizer.nextToken());
+        }
+        return tokens;
+    }
+
     private synchronized void addLine(String line) {
-        streamContent.append(line).append("\n");
+        if (logWriter != null) {
+            try {
+                logWriter.write(line);
+                logWriter.write("\n");
+            } catch (IOException e) {
+                e.printStackTrace();
+                closeLog();
+            }
+        }
+        if (tailSize > 0) {
+            CapturedLine capturedLine = new CapturedLine(lineCount++, line);
+            for (Pattern pattern : retainedPatterns) {
+                if (pattern.matcher(line).find()) {
+                    retainedLines.add(capturedLine);
+                    break;
+                }
+            }
+            if (tailLines.size() == tailSize) {
+                tailLines.removeFirst();
+            }
+            tailLines.addLast(capturedLine);
+        } else {
+            streamContent.append(line).append("\n");
+        }
         if (showConsoleLog) {
             System.out.println("[" + label + "] " + line);
         }
     }
 
-    private Process getProcess() {
-        return this.process;
+    private synchronized void closeLog() {
+        if (logWriter != null) {
+            try {
+                logWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            logWriter = null;
+        }
     }
 
     void suppressConsoleLog() {
         this.showConsoleLog = false;
     }
 
-    String getResult() {
-        return streamContent.toString();
+    void captureTail(int tailSize) {
+        this.tailSize = tailSize;
+        this.tailLines = new ArrayDeque<>(tailSize);
+        this.retainedLines = new ArrayList<>();
+        this.retainedPatterns = new ArrayList<>();
     }
 
-    int execute() throws IOException, InterruptedException {
-        if (workDir != null) {
-            process = Runtime.getRuntime().exec(command, null, workDir);
-        } else {
-            process = Runtime.getRuntime().exec(command);
+    void retainLinesMatching(String regex) {
+        if (tailSize <= 0) {
+            throw new CodeInspectException("Lines can be retained only while capturing a bounded tail");
         }
-        this.inputProcessor.join();
-        this.errorProcessor.join();
-        process.waitFor();
-        return process.exitValue();
+        retainedPatterns.add(Pattern.compile(regex));
+    }
+
+    void streamTo(File logFile) {
+        this.logFile = logFile;
+    }
+
+    File getLogFile() {
+        return logFile;
+    }
+
+    void redirectOutputTo(File outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    void limitTimeout(long timeoutMillis) {
+        if (this.timeoutMillis <= 0 || timeoutMillis < this.timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    void recordUsageTo(CommandUsageReport usageReport) {
+        this.usageReport = usageReport;
     }
 
-    private enum StreamType {
-        INPUT, ERROR
+    void recordChildTimes() {
+        this.childTimes = true;
     }
 
-    private final class StreamProcessor extends Thread {
+    boolean isTimedOut() {
+        return timedOut;
+    }
 
-        private final CommandRunner commandRunner;
-        private final StreamType type;
+    synchronized String getResult() {
+        if (tailSize <= 0) {
+            return streamContent.toString();
+        }
+        StringBuilder result = new StringBuilder();
+        long tailStart = tailLines.isEmpty() ? lineCount : tailLines.peekFirst().index;
+        for (CapturedLine retainedLine : retainedLines) {
+            if (retainedLine.index < tailStart) {
+                result.append(retainedLine.line).append("\n");
+            }
+        }
+        for (CapturedLine tailLine : tailLines) {
+            result.append(tailLine.line).append("\n");
+        }
+        return result.toString();
+    }
 
-        private StreamProcessor(CommandRunner commandRunner, StreamType type) {
-            this.commandRunner = commandRunner;
-            this.type = type;
+    int execute() throws IOException, InterruptedException {
+        if (logFile != null) {
+            logWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), "UTF-8"));
+        }
+        try {
+            return executeProcess();
+        } finally {
+            closeLog();
         }
+    }
 
-        private void processContent(InputStream inputStream) throws IOException {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                commandRunner.addLine(line);
+    private int executeProcess() throws IOException, InterruptedException {
+        CommandUsage usage = null;
+        ProcessBuilder processBuilder;
+        if (usageReport != null) {
+            usage = CommandUsage.prepare(label, command, childTimes);
+            processBuilder = new ProcessBuilder(usage.getTrackedCommand());
+        } else {
+            processBuilder = new ProcessBuilder(command);
+        }
+        if (workDir != null) {
+            processBuilder.directory(workDir);
+        }
+        if (outputFile != null) {
+            processBuilder.redirectOutput(outputFile);
+        }
+        Integer exitCode = null;
+        try {
+            process = processBuilder.start();
+            if (usage != null) {
+                usage.start(process);
+            }
+            exitCode = waitForProcess();
+            return exitCode;
+        } finally {
+            if (usage != null) {
+                usage.finish(exitCode, timedOut);
+                if (process != null) {
+                    usageReport.add(usage);
+                }
             }
-            reader.close();
         }
+    }
 
-        @Override
-        public void run() {
-            Process process;
-            while ((process = commandRunner.getProcess()) == null) {
-                try {
-                    Thread.sleep(5);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+    private int waitForProcess() throws InterruptedException {
+        List<Future<?>> streamFutures = new ArrayList<>();
+        boolean interrupted = false;
+        try {
+            if (outputFile == null) {
+                streamFutures.add(streamExecutor.submit(new StreamProcessor(process.getInputStream())));
+            }
+            streamFutures.add(streamExecutor.submit(new StreamProcessor(process.getErrorStream())));
+            long deadline = 0;
+            if (timeoutMillis > 0) {
+                deadline = System.currentTimeMillis() + timeoutMillis;
+                if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timedOut = true;
+                    ProcessTree.destroy(process);
+                }
+            } else {
+                process.waitFor();
+            }
+            for (Future<?> streamFuture : streamFutures) {
+                awaitStream(streamFuture, deadline);
+            }
+            if (timedOut) {
+                throw new CodeInspectTimeoutException("[" + label + "] Command timed out after " +
+                        TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds: " + String.join(" ", command));
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            if (process.isAlive()) {
+                ProcessTree.destroy(process);
+                for (Future<?> streamFuture : streamFutures) {
+                    streamFuture.cancel(true);
                 }
             }
-            InputStream inputStream = null;
-            if (type == StreamType.INPUT) {
-                inputStream = process.getInputStream();
-            } else if (type == StreamType.ERROR) {
-                inputStream = process.getErrorStream();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
+        }
+    }
+
+    private void awaitStream(Future<?> streamFuture, long deadline) throws InterruptedException {
+        try {
+            if (deadline > 0) {
+                streamFuture.get(Math.max(deadline - System.currentTimeMillis(), 1000), TimeUnit.MILLISECONDS);
+            } else {
+                streamFuture.get();
+            }
+        } catch (TimeoutException e) {
+            timedOut = true;
+            ProcessTree.destroy(process);
+            streamFuture.cancel(true);
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+    }
+
+    private static final class CapturedLine {
+        private final long index;
+        private final String line;
+
+        private CapturedLine(long index, String line) {
+            this.index = index;
+            this.line = line;
+        }
+    }
+
+    private final class StreamProcessor implements Runnable {
+
+        private final InputStream inputStream;
+
+        private StreamProcessor(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public void run() {
             try {
-                processContent(inputStream);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    addLine(line);
+                }
+                reader.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
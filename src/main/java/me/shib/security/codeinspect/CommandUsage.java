@@ -0,0 +1,234 @@
+package me.shib.security.codeinspect;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class CommandUsage {
+
+    private static final transient ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CommandUsage-Sampler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    private static final transient long sampleIntervalMillis = 250;
+    private static final transient long defaultClockTicksPerSecond = 100;
+    private static final transient long clockTicksPerSecond = readClockTicksPerSecond();
+    private static final transient File shell = new File("/bin/sh");
+    private static final transient String timesScript = "times_file=$1; shift; " +
+            "command -v \"$1\" > /dev/null 2>&1 || { echo \"$1: command not found\" >&2; exit 127; }; " +
+            "\"$@\"; status=$?; times > \"$times_file\"; exit $status";
+    private static final transient Pattern cpuTimePattern = Pattern.compile("(\\d+)m([\\d.]+)s");
+    private static final transient Set<CommandUsage> runningUsages = ConcurrentHashMap.newKeySet();
+    private static transient ScheduledFuture<?> samplingTask;
+
+    private final String label;
+    private final String command;
+    private final Date startedAt;
+    private long wallTimeMillis;
+    private long userCpuMillis;
+    private long systemCpuMillis;
+    private long peakRssKb;
+    private Integer exitCode;
+    private boolean timedOut;
+    private final transient List<String> trackedCommand;
+    private final transient File timesFile;
+    private final transient long startNanos;
+    private transient long pid;
+
+    private CommandUsage(String label, List<String> command, File timesFile) {
+        this.label = label;
+        this.command = String.join(" ", command).replaceAll("//[^/@\\s]+@", "//***@")
+                .replaceAll("(?i)(extraHeader=Authorization: \\S+ )\\S+", "$1***");
+        this.timesFile = timesFile;
+        this.trackedCommand = new ArrayList<>();
+        if (timesFile != null) {
+            trackedCommand.add(shell.getAbsolutePath());
+            trackedCommand.add("-c");
+            trackedCommand.add(timesScript);
+            trackedCommand.add("codeinspect");
+            trackedCommand.add(timesFile.getAbsolutePath());
+        }
+        trackedCommand.addAll(command);
+        this.startedAt = new Date();
+        this.startNanos = System.nanoTime();
+    }
+
+    static CommandUsage prepare(String label, List<String> command, boolean childTimes) throws IOException {
+        File timesFile = null;
+        if (childTimes && shell.canExecute()) {
+            timesFile = File.createTempFile("codeinspect-times-", ".txt");
+        }
+        return new CommandUsage(label, command, timesFile);
+    }
+
+    private static long readClockTicksPerSecond() {
+        try {
+            Process process = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                    StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            reader.close();
+            if (process.waitFor() == 0 && line != null) {
+                long ticks = Long.parseLong(line.trim());
+                if (ticks > 0) {
+                    return ticks;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Unable to read the clock tick rate, assuming " + defaultClockTicksPerSecond +
+                    ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return defaultClockTicksPerSecond;
+    }
+
+    private static synchronized void startSampling() {
+        if (samplingTask == null) {
+            samplingTask = sampler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sampleRunning();
+                }
+            }, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void sampleRunning() {
+        if (runningUsages.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Long>> childrenMap = ProcessTree.getChildrenMap();
+        for (CommandUsage usage : runningUsages) {
+            usage.sample(childrenMap);
+        }
+    }
+
+    List<String> getTrackedCommand() {
+        return trackedCommand;
+    }
+
+    void start(Process process) {
+        pid = ProcessTree.getPid(process);
+        if (pid > 0) {
+            sample(ProcessTree.getChildrenMap());
+            runningUsages.add(this);
+            startSampling();
+        }
+    }
+
+    private static long parseStatusKb(String status, String field) {
+        if (status == null) {
+            return 0;
+        }
+        for (String line : status.split("\n")) {
+            if (line.startsWith(field + ":")) {
+                String[] split = line.substring(field.length() + 1).trim().split("\\s+");
+                try {
+                    return Long.parseLong(split[0]);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private synchronized void sample(Map<Long, List<Long>> childrenMap) {
+        List<Long> pids = ProcessTree.getDescendants(pid, childrenMap);
+        pids.add(0, pid);
+        long userTicks = 0;
+        long systemTicks = 0;
+        long rssKb = 0;
+        for (Long treePid : pids) {
+            String[] fields = ProcessTree.readStatFields(treePid);
+            // utime, stime, cutime and cstime are fields 14 to 17 of proc(5), the state being field 3
+            if (fields != null && fields.length > 14) {
+                userTicks += Long.parseLong(fields[11]) + Long.parseLong(fields[13]);
+                systemTicks += Long.parseLong(fields[12]) + Long.parseLong(fields[14]);
+                rssKb += parseStatusKb(ProcessTree.readProcFile(treePid, "status"), "VmRSS");
+            }
+        }
+        userCpuMillis = Math.max(userCpuMillis, userTicks * 1000 / clockTicksPerSecond);
+        systemCpuMillis = Math.max(systemCpuMillis, systemTicks * 1000 / clockTicksPerSecond);
+        peakRssKb = Math.max(peakRssKb, rssKb);
+    }
+
+    private static long parseCpuMillis(Matcher matcher) {
+        return Long.parseLong(matcher.group(1)) * 60000 + Math.round(Double.parseDouble(matcher.group(2)) * 1000);
+    }
+
+    private void readChildTimes() {
+        try {
+            List<String> lines = Files.readAllLines(timesFile.toPath(), StandardCharsets.UTF_8);
+            // The second line of the shell's times output holds the user and system time of its reaped children
+            if (lines.size() > 1) {
+                Matcher matcher = cpuTimePattern.matcher(lines.get(1));
+                if (matcher.find()) {
+                    userCpuMillis = Math.max(userCpuMillis, parseCpuMillis(matcher));
+                    if (matcher.find()) {
+                        systemCpuMillis = Math.max(systemCpuMillis, parseCpuMillis(matcher));
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Unable to read the CPU time of [" + label + "]: " + e.getMessage());
+        }
+    }
+
+    synchronized void finish(Integer exitCode, boolean timedOut) {
+        runningUsages.remove(this);
+        this.wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        if (timesFile != null) {
+            if (timesFile.length() > 0) {
+                readChildTimes();
+            }
+            if (!timesFile.delete() && timesFile.exists()) {
+                System.out.println("Unable to delete " + timesFile.getAbsolutePath());
+            }
+        }
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    String getCommand() {
+        return command;
+    }
+
+    synchronized long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    synchronized long getUserCpuMillis() {
+        return userCpuMillis;
+    }
+
+    synchronized long getSystemCpuMillis() {
+        return systemCpuMillis;
+    }
+
+    synchronized long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    synchronized Integer getExitCode() {
+        return exitCode;
+    }
+
+    synchronized boolean isTimedOut() {
+        return timedOut;
+    }
+}
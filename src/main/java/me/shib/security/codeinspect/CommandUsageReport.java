@@ -0,0 +1,82 @@
+package me.shib.security.codeinspect;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.*;
+
+final class CommandUsageReport {
+
+    private static final transient Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
+
+    private final List<CommandUsage> usages;
+
+    CommandUsageReport() {
+        this.usages = new ArrayList<>();
+    }
+
+    private static String toSeconds(long millis) {
+        return String.format("%.1fs", millis / 1000.0);
+    }
+
+    private static String toMegaBytes(long kiloBytes) {
+        return String.format("%.1f MB", kiloBytes / 1024.0);
+    }
+
+    synchronized void add(CommandUsage usage) {
+        usages.add(usage);
+    }
+
+    synchronized List<CommandUsage> getUsages() {
+        return new ArrayList<>(usages);
+    }
+
+    String getSummary() {
+        class LabelTotal {
+            private int commands;
+            private long wallTimeMillis;
+            private long cpuMillis;
+            private long peakRssKb;
+        }
+        StringBuilder summary = new StringBuilder();
+        summary.append("Resource usage by command:");
+        Map<String, LabelTotal> labelTotals = new LinkedHashMap<>();
+        for (CommandUsage usage : getUsages()) {
+            summary.append("\n[").append(usage.getLabel()).append("] ")
+                    .append("wall ").append(toSeconds(usage.getWallTimeMillis()))
+                    .append(" | cpu user ").append(toSeconds(usage.getUserCpuMillis()))
+                    .append(" sys ").append(toSeconds(usage.getSystemCpuMillis()))
+                    .append(" | peak rss ").append(toMegaBytes(usage.getPeakRssKb()))
+                    .append(" | exit ").append(usage.isTimedOut() ? "timed out" : usage.getExitCode())
+                    .append(" | ").append(usage.getCommand());
+            LabelTotal total = labelTotals.get(usage.getLabel());
+            if (total == null) {
+                total = new LabelTotal();
+                labelTotals.put(usage.getLabel(), total);
+            }
+            total.commands++;
+            total.wallTimeMillis += usage.getWallTimeMillis();
+            total.cpuMillis += usage.getUserCpuMillis() + usage.getSystemCpuMillis();
+            total.peakRssKb = Math.max(total.peakRssKb, usage.getPeakRssKb());
+        }
+        summary.append("\nResource usage by label:");
+        for (Map.Entry<String, LabelTotal> entry : labelTotals.entrySet()) {
+            summary.append("\n[").append(entry.getKey()).append("] ")
+                    .append(entry.getValue().commands).append(" command(s)")
+                    .append(" | wall ").append(toSeconds(entry.getValue().wallTimeMillis))
+                    .append(" | cpu ").append(toSeconds(entry.getValue().cpuMillis))
+                    .append(" | peak rss ").append(toMegaBytes(entry.getValue().peakRssKb));
+        }
+        return summary.toString();
+    }
+
+    void writeTo(File file) throws FileNotFoundException {
+        PrintWriter pw = new PrintWriter(file);
+        pw.append(gson.toJson(getUsages()));
+        pw.close();
+    }
+}
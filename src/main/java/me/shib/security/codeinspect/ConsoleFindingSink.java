@@ -0,0 +1,46 @@
+package me.shib.security.codeinspect;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class ConsoleFindingSink implements FindingSink {
+
+    private final Map<CodeInspectResult, Integer> findingCounts;
+    private int totalCount;
+
+    ConsoleFindingSink() {
+        this.findingCounts = new HashMap<>();
+    }
+
+    @Override
+    public void accept(CodeInspectFinding finding) {
+        Integer count = findingCounts.get(finding.getResult());
+        findingCounts.put(finding.getResult(), count == null ? 1 : count + 1);
+    }
+
+    @Override
+    public void supersede(CodeInspectFinding finding) {
+    }
+
+    @Override
+    public void complete(CodeInspectResult result) {
+        Integer count = findingCounts.remove(result);
+        if (count == null) {
+            count = 0;
+        }
+        if (result.isTimedOut()) {
+            System.out.println("Skipping findings from " + result.getScanner() + " [" + result.getContext() +
+                    "]: Timed out");
+            return;
+        }
+        System.out.println("Findings from " + result.getScanner() + " [" + result.getContext() + "]: " + count);
+        totalCount += count;
+    }
+
+    @Override
+    public void close(boolean completed) {
+        if (completed) {
+            System.out.println("Total findings: " + totalCount);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+final class FileInventory {
+
+    private static final transient int flagExtended = 0x4000;
+    private static final transient int flagSkipWorktree = 0x4000;
+    private static final transient int modeTypeMask = 0170000;
+    private static final transient int modeTypeRegular = 0100000;
+    private static final transient char[] hexDigits = "0123456789abcdef".toCharArray();
+
+    private final List<Entry> entries;
+    private final String source;
+
+    private FileInventory(List<Entry> entries, String source) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.source = source;
+    }
+
+    static FileInventory forDirectory(File dir) {
+        Path baseDir = dir.toPath().toAbsolutePath().normalize();
+        Path repoRoot = baseDir;
+        while (repoRoot != null && !repoRoot.resolve(".git").toFile().exists()) {
+            repoRoot = repoRoot.getParent();
+        }
+        if (repoRoot != null) {
+            String prefix = repoRoot.relativize(baseDir).toString().replace(File.separatorChar, '/');
+            if (!prefix.isEmpty()) {
+                prefix = prefix + "/";
+            }
+            List<Entry> entries = readGitIndex(repoRoot.toFile(), prefix);
+            if (entries != null) {
+                return new FileInventory(entries, "git index");
+            }
+            entries = readGitLsFiles(repoRoot.toFile(), prefix);
+            if (entries != null) {
+                return new FileInventory(entries, "git ls-files");
+            }
+        }
+        return new FileInventory(walkDirectory(baseDir), "directory walk");
+    }
+
+    private static void addEntry(List<Entry> entries, String repoPath, String prefix, String objectId, long size) {
+        if (repoPath.startsWith(prefix)) {
+            entries.add(new Entry(repoPath.substring(prefix.length()), objectId, size));
+        }
+    }
+
+    private static String toHex(ByteBuffer buffer, int length) {
+        char[] hex = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = buffer.get() & 0xff;
+            hex[i * 2] = hexDigits[b >>> 4];
+            hex[i * 2 + 1] = hexDigits[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    private static int readOffset(ByteBuffer buffer) {
+        int c = buffer.get() & 0xff;
+        int value = c & 0x7f;
+        while ((c & 0x80) != 0) {
+            c = buffer.get() & 0xff;
+            value = ((value + 1) << 7) | (c & 0x7f);
+        }
+        return value;
+    }
+
+    private static byte[] readName(ByteBuffer buffer, byte[] previousName, int version) {
+        int stripLength = version >= 4 ? readOffset(buffer) : previousName.length;
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            continue;
+        }
+        int suffixLength = buffer.position() - start - 1;
+        int keepLength = previousName.length - stripLength;
+        if (keepLength < 0) {
+            throw new IllegalStateException("Invalid path compression in git index");
+        }
+        byte[] name = new byte[keepLength + suffixLength];
+        System.arraycopy(previousName, 0, name, 0, keepLength);
+        buffer.position(start);
+        buffer.get(name, keepLength, suffixLength);
+        buffer.get();
+        return name;
+    }
+
+    private static List<Entry> readGitIndex(File repoDir, String prefix) {
+        File gitDir = GitRepo.resolveGitDir(repoDir);
+        if (gitDir == null) {
+            return null;
+        }
+        File indexFile = new File(gitDir, "index");
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        String objectFormat = GitRepo.readConfigValue(new File(GitRepo.resolveCommonDir(gitDir), "config"),
+                "extensions", "objectformat");
+        int hashLength = "sha256".equalsIgnoreCase(objectFormat) ? 32 : 20;
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] signature = new byte[4];
+            buffer.get(signature);
+            int version = buffer.getInt();
+            if (!"DIRC".equals(new String(signature, StandardCharsets.US_ASCII)) || version < 2 || version > 4) {
+                return null;
+            }
+            int entryCount = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(entryCount);
+            byte[] previousName = new byte[0];
+            String previousPath = null;
+            for (int i = 0; i < entryCount; i++) {
+                int entryStart = buffer.position();
+                buffer.position(entryStart + 24);
+                int mode = buffer.getInt();
+                buffer.position(entryStart + 36);
+                long size = buffer.getInt() & 0xffffffffL;
+                String objectId = toHex(buffer, hashLength);
+                int flags = buffer.getShort() & 0xffff;
+                int extendedFlags = 0;
+                if ((flags & flagExtended) != 0) {
+                    extendedFlags = buffer.getShort() & 0xffff;
+                }
+                byte[] name = readName(buffer, previousName, version);
+                previousName = name;
+                if (version < 4) {
+                    buffer.position(entryStart + ((buffer.position() - entryStart + 7) & ~7));
+                }
+                String path = new String(name, StandardCharsets.UTF_8);
+                if (path.equals(previousPath) || (mode & modeTypeMask) != modeTypeRegular ||
+                        (extendedFlags & flagSkipWorktree) != 0) {
+                    continue;
+                }
+                previousPath = path;
+                addEntry(entries, path, prefix, objectId, size);
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Unable to read git index, falling back to git ls-files: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<Entry> readGitLsFiles(File repoDir, String prefix) {
+        String response;
+        try {
+            response = GitRepo.runGitCommand(repoDir, null, "ls-files", "-s", "-t", "-z");
+        } catch (CodeInspectException e) {
+            return null;
+        }
+        if (response == null) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        String previousPath = null;
+        for (String record : response.split("\0")) {
+            int tabPos = record.indexOf('\t');
+            if (tabPos < 0) {
+                continue;
+            }
+            String[] fields = record.substring(0, tabPos).split(" ");
+            String path = record.substring(tabPos + 1);
+            if (fields.length < 4 || fields[0].equals("S") || path.equals(previousPath) ||
+                    !fields[1].startsWith("100")) {
+                continue;
+            }
+            previousPath = path;
+            addEntry(entries, path, prefix, fields[2], new File(repoDir, path).length());
+        }
+        return entries;
+    }
+
+    private static List<Entry> walkDirectory(final Path baseDir) {
+        return new SourceTreeWalker<>(new SourceTreeWalker.Visitor<List<Entry>>() {
+            @Override
+            List<Entry> create() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            void visitFile(List<Entry> entries, Path file, String name, BasicFileAttributes attributes) {
+                String path = baseDir.relativize(file).toString().replace(File.separatorChar, '/');
+                entries.add(new Entry(path, null, attributes.size()));
+            }
+
+            @Override
+            void merge(List<Entry> entries, List<Entry> other) {
+                entries.addAll(other);
+            }
+        }, Collections.<String>emptySet()).walk(baseDir);
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    static final class Entry {
+        private final String path;
+        private final String objectId;
+        private final long size;
+
+        private Entry(String path, String objectId, long size) {
+            this.path = path;
+            this.objectId = objectId;
+            this.size = size;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        String getName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        String getObjectId() {
+            return objectId;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+}
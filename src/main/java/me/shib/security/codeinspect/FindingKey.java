@@ -0,0 +1,114 @@
+package me.shib.security.codeinspect;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+
+final class FindingKey implements Comparable<FindingKey> {
+
+    private static final transient ThreadLocal<MessageDigest> digests = newDigests("MD5");
+    private static final transient ThreadLocal<MessageDigest> checksumDigests = newDigests("SHA-256");
+
+    private final long high;
+    private final long low;
+    private final long checksum;
+
+    private FindingKey(long high, long low, long checksum) {
+        this.high = high;
+        this.low = low;
+        this.checksum = checksum;
+    }
+
+    private static ThreadLocal<MessageDigest> newDigests(final String algorithm) {
+        return new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance(algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new CodeInspectException(e);
+                }
+            }
+        };
+    }
+
+    static String[] canonicalize(Collection<String> keys) {
+        String[] sortedKeys = keys.toArray(new String[0]);
+        Arrays.sort(sortedKeys);
+        return sortedKeys;
+    }
+
+    private static byte[] digest(MessageDigest digest, String[] sortedKeys) {
+        digest.reset();
+        byte[] buffer = new byte[256];
+        int position = 0;
+        for (String key : sortedKeys) {
+            int length = key.length();
+            if (position + 4 > buffer.length) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte) (length >>> 24);
+            buffer[position++] = (byte) (length >>> 16);
+            buffer[position++] = (byte) (length >>> 8);
+            buffer[position++] = (byte) length;
+            for (int i = 0; i < length; i++) {
+                if (position + 2 > buffer.length) {
+                    digest.update(buffer, 0, position);
+                    position = 0;
+                }
+                char c = key.charAt(i);
+                buffer[position++] = (byte) (c >>> 8);
+                buffer[position++] = (byte) c;
+            }
+        }
+        digest.update(buffer, 0, position);
+        return digest.digest();
+    }
+
+    private static long toLong(byte[] hash, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (hash[i] & 0xff);
+        }
+        return value;
+    }
+
+    static FindingKey of(String[] sortedKeys) {
+        byte[] hash = digest(digests.get(), sortedKeys);
+        byte[] checksumHash = digest(checksumDigests.get(), sortedKeys);
+        return new FindingKey(toLong(hash, 0), toLong(hash, 8), toLong(checksumHash, 0));
+    }
+
+    @Override
+    public int compareTo(FindingKey other) {
+        int comparison = Long.compareUnsigned(high, other.high);
+        if (comparison == 0) {
+            comparison = Long.compareUnsigned(low, other.low);
+        }
+        return comparison != 0 ? comparison : Long.compareUnsigned(checksum, other.checksum);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FindingKey)) {
+            return false;
+        }
+        FindingKey that = (FindingKey) o;
+        return high == that.high && low == that.low && checksum == that.checksum;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x-%016x", high, low, checksum);
+    }
+}
@@ -0,0 +1,13 @@
+package me.shib.security.codeinspect;
+
+interface FindingSink {
+
+    void accept(CodeInspectFinding finding) throws Exception;
+
+    void supersede(CodeInspectFinding finding) throws Exception;
+
+    void complete(CodeInspectResult result) throws Exception;
+
+    void close(boolean completed) throws Exception;
+
+}
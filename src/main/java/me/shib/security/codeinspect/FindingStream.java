@@ -0,0 +1,161 @@
+package me.shib.security.codeinspect;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+final class FindingStream {
+
+    private static final transient int defaultCapacity = 1024;
+    private static final transient long offerTimeoutMillis = 100;
+
+    private final BlockingQueue<Event> queue;
+    private final List<FindingSink> sinks;
+    private volatile Thread dispatcher;
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    FindingStream() {
+        this(defaultCapacity);
+    }
+
+    FindingStream(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sinks = new CopyOnWriteArrayList<>();
+    }
+
+    void addSink(FindingSink sink) {
+        sinks.add(sink);
+    }
+
+    void publish(CodeInspectFinding finding) {
+        post(new Event(finding, null));
+    }
+
+    void supersede(CodeInspectFinding finding) {
+        Event event = new Event(finding, null);
+        event.superseding = true;
+        post(event);
+    }
+
+    void complete(CodeInspectResult result) {
+        post(new Event(null, result));
+    }
+
+    private synchronized boolean startDispatcher() {
+        if (closed) {
+            return false;
+        }
+        if (dispatcher == null) {
+            dispatcher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, "codeinspect-findings");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+        return true;
+    }
+
+    private void post(Event event) {
+        if (sinks.isEmpty() || (dispatcher == null && !startDispatcher())) {
+            return;
+        }
+        try {
+            while (!closed) {
+                if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(Exception e) {
+        e.printStackTrace();
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                Event event = queue.take();
+                if (event.finding == null && event.result == null) {
+                    closeSinks(event.completed);
+                    return;
+                }
+                for (FindingSink sink : sinks) {
+                    try {
+                        if (event.superseding) {
+                            sink.supersede(event.finding);
+                        } else if (event.finding != null) {
+                            sink.accept(event.finding);
+                        } else {
+                            sink.complete(event.result);
+                        }
+                    } catch (Exception e) {
+                        fail(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeSinks(boolean completed) {
+        for (FindingSink sink : sinks) {
+            try {
+                sink.close(completed && failure == null);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+    }
+
+    void close(boolean completed) throws CodeInspectException {
+        Thread dispatcher;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dispatcher = this.dispatcher;
+        }
+        if (dispatcher == null) {
+            closeSinks(completed);
+        } else {
+            Event end = new Event(null, null);
+            end.completed = completed;
+            try {
+                queue.put(end);
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CodeInspectException(e);
+            }
+        }
+        if (completed && failure != null) {
+            throw new CodeInspectException(failure);
+        }
+    }
+
+    private static final class Event {
+        private final CodeInspectFinding finding;
+        private final CodeInspectResult result;
+        private boolean completed;
+        private boolean superseding;
+
+        private Event(CodeInspectFinding finding, CodeInspectResult result) {
+            this.finding = finding;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class FingerprintEngine {
+
+    private static final transient char[] hexDigits = "0123456789abcdef".toCharArray();
+    private static final transient int batchThreshold = 16;
+    private static final transient ThreadLocal<Digester> digesters = new ThreadLocal<Digester>() {
+        @Override
+        protected Digester initialValue() {
+            return new Digester();
+        }
+    };
+
+    private final CodeInspectConfig config;
+
+    FingerprintEngine(CodeInspectConfig config) {
+        this.config = config;
+    }
+
+    String fingerprint(CodeInspect.HashRequest request) throws IOException {
+        ByteBuffer snippet = config.getSnippetCache().getLines(request.getFile(), request.getStartLineNo(),
+                request.getEndLineNo());
+        if (snippet == null) {
+            return null;
+        }
+        String relativePath = config.getManifest().getRelativePath(request.getFile());
+        Digester digester = digesters.get();
+        digester.reset();
+        digester.putString(request.getType());
+        if (relativePath != null) {
+            digester.putString(relativePath);
+        } else {
+            digester.putString(request.getFile().getAbsolutePath());
+        }
+        String[] args = request.getArgs();
+        digester.putInt(args == null ? -1 : args.length);
+        if (args != null) {
+            for (String arg : args) {
+                digester.putString(arg);
+            }
+        }
+        digester.putLines(snippet);
+        return digester.finish();
+    }
+
+    List<String> fingerprint(List<CodeInspect.HashRequest> requests) throws IOException {
+        String[] fingerprints = new String[requests.size()];
+        IOException[] failure = new IOException[1];
+        ForkJoinPool.commonPool().invoke(new BatchTask(requests, fingerprints, failure, 0, requests.size()));
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new ArrayList<>(Arrays.asList(fingerprints));
+    }
+
+    private final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<CodeInspect.HashRequest> requests;
+        private final String[] fingerprints;
+        private final IOException[] failure;
+        private final int start;
+        private final int end;
+
+        private BatchTask(List<CodeInspect.HashRequest> requests, String[] fingerprints, IOException[] failure,
+                          int start, int end) {
+            this.requests = requests;
+            this.fingerprints = fingerprints;
+            this.failure = failure;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > batchThreshold) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new BatchTask(requests, fingerprints, failure, start, middle),
+                        new BatchTask(requests, fingerprints, failure, middle, end));
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                try {
+                    fingerprints[i] = fingerprint(requests.get(i));
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Digester {
+        private final MessageDigest digest;
+        private final byte[] buffer;
+        private final char[] hex;
+        private int position;
+
+        private Digester() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new CodeInspectException(e);
+            }
+            this.buffer = new byte[8192];
+            this.hex = new char[digest.getDigestLength() * 2];
+        }
+
+        private void reset() {
+            digest.reset();
+            position = 0;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        private void putInt(int value) {
+            ensureCapacity(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            putInt(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                ensureCapacity(2);
+                buffer[position++] = (byte) (c >>> 8);
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        private void putLines(ByteBuffer lines) {
+            int limit = lines.limit();
+            for (int i = lines.position(); i < limit; i++) {
+                byte b = lines.get(i);
+                if (b == '\r') {
+                    if (i + 1 < limit && lines.get(i + 1) == '\n') {
+                        continue;
+                    }
+                    b = '\n';
+                }
+                ensureCapacity(1);
+                buffer[position++] = b;
+            }
+        }
+
+        private String finish() {
+            digest.update(buffer, 0, position);
+            position = 0;
+            byte[] hash = digest.digest();
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = hexDigits[(hash[i] >>> 4) & 0x0f];
+                hex[i * 2 + 1] = hexDigits[hash[i] & 0x0f];
+            }
+            return new String(hex);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package me.shib.security.codeinspect;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+final class GitIgnore {
+
+    private final GitIgnore parent;
+    private final Path baseDir;
+    private final List<Rule> rules;
+
+    private GitIgnore(GitIgnore parent, Path baseDir, List<Rule> rules) {
+        this.parent = parent;
+        this.baseDir = baseDir;
+        this.rules = rules;
+    }
+
+    static GitIgnore forDirectory(Path dir) {
+        dir = dir.toAbsolutePath().normalize();
+        Path repoRoot = dir;
+        while (repoRoot != null && !Files.exists(repoRoot.resolve(".git"))) {
+            repoRoot = repoRoot.getParent();
+        }
+        if (repoRoot == null) {
+            return load(null, dir, dir.resolve(".gitignore"));
+        }
+        GitIgnore gitIgnore = load(null, repoRoot, repoRoot.resolve(".git").resolve("info").resolve("exclude"));
+        gitIgnore = load(gitIgnore, repoRoot, repoRoot.resolve(".gitignore"));
+        for (Path name : repoRoot.relativize(dir)) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+            repoRoot = repoRoot.resolve(name);
+            gitIgnore = load(gitIgnore, repoRoot, repoRoot.resolve(".gitignore"));
+        }
+        return gitIgnore;
+    }
+
+    static GitIgnore load(GitIgnore parent, Path dir, Path ignoreFile) {
+        if (!Files.isRegularFile(ignoreFile)) {
+            return parent;
+        }
+        List<Rule> rules = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+                Rule rule = Rule.parse(line);
+                if (rule != null) {
+                    rules.add(rule);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (rules.isEmpty()) {
+            return parent;
+        }
+        return new GitIgnore(parent, dir, rules);
+    }
+
+    boolean isIgnored(Path path, boolean directory) {
+        for (GitIgnore gitIgnore = this; gitIgnore != null; gitIgnore = gitIgnore.parent) {
+            if (!path.startsWith(gitIgnore.baseDir) || path.equals(gitIgnore.baseDir)) {
+                continue;
+            }
+            String relativePath = null;
+            for (int i = gitIgnore.rules.size() - 1; i >= 0; i--) {
+                Rule rule = gitIgnore.rules.get(i);
+                if (rule.directoryOnly && !directory) {
+                    continue;
+                }
+                if (relativePath == null) {
+                    relativePath = gitIgnore.baseDir.relativize(path).toString().replace('\\', '/');
+                }
+                if (rule.matches(relativePath)) {
+                    return !rule.negated;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Rule {
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean anchored;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+        }
+
+        private static Rule parse(String line) {
+            String glob = line;
+            while (glob.endsWith(" ") && !glob.endsWith("\\ ")) {
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            if (glob.isEmpty() || glob.startsWith("#")) {
+                return null;
+            }
+            boolean negated = glob.startsWith("!");
+            if (negated) {
+                glob = glob.substring(1);
+            }
+            boolean directoryOnly = glob.endsWith("/");
+            if (directoryOnly) {
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            boolean anchored = glob.contains("/");
+            if (glob.startsWith("/")) {
+                glob = glob.substring(1);
+            }
+            if (glob.isEmpty()) {
+                return null;
+            }
+            return new Rule(Pattern.compile(toRegex(glob)), negated, directoryOnly, anchored);
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            while (i < glob.length()) {
+                char c = glob.charAt(i);
+                if (glob.startsWith("**/", i)) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                    continue;
+                }
+                if (glob.startsWith("/**", i) && i + 3 == glob.length()) {
+                    regex.append("/.*");
+                    i += 3;
+                    continue;
+                }
+                if (glob.startsWith("**", i)) {
+                    regex.append(".*");
+                    i += 2;
+                    continue;
+                }
+                switch (c) {
+                    case '*':
+                        regex.append("[^/]*");
+                        break;
+                    case '?':
+                        regex.append("[^/]");
+                        break;
+                    case '[':
+                        int end = glob.indexOf(']', i + 2);
+                        if (end < 0) {
+                            regex.append("\\[");
+                        } else {
+                            String set = glob.substring(i + 1, end);
+                            if (set.startsWith("!")) {
+                                set = "^" + set.substring(1);
+                            }
+                            regex.append('[').append(set.replace("\\", "\\\\")).append(']');
+                            i = end;
+                        }
+                        break;
+                    case '\\':
+                        if (i + 1 < glob.length()) {
+                            i++;
+                            regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                        }
+                        break;
+                    default:
+                        regex.append(Pattern.quote(String.valueOf(c)));
+                }
+                i++;
+            }
+            return regex.toString();
+        }
+
+        private boolean matches(String relativePath) {
+            if (anchored) {
+                return pattern.matcher(relativePath).matches();
+            }
+            return pattern.matcher(relativePath.substring(relativePath.lastIndexOf('/') + 1)).matches();
+        }
+    }
+}
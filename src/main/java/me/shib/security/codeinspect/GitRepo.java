@@ -2,12 +2,21 @@ package me.shib.security.codeinspect;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
-import java.util.Objects;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GitRepo {
 
+    private static final transient Map<String, Object> mirrorLocks = new ConcurrentHashMap<>();
+    private static final transient int[] fetchDepthSteps = {10, 100, 1000};
+    private static final transient String branchRefPrefix = "refs/heads/";
+
     private transient String gitRepoSlug;
     private transient String gitRepoWebURL;
     private transient String gitRepoHttpUri;
@@ -20,65 +29,181 @@ public class GitRepo {
     }
 
     GitRepo() throws CodeInspectException {
-        File gitDir = new File(".git");
-        if (!gitDir.exists() || !gitDir.isDirectory()) {
+        this(new File(System.getProperty("user.dir")));
+    }
+
+    GitRepo(File repoDir) throws CodeInspectException {
+        File gitDir = resolveGitDir(repoDir);
+        if (gitDir == null) {
             throw new CodeInspectException("Not a Git Repository");
         }
-        String gitUri = getGitUrlFromLocalRepo();
+        File commonDir = resolveCommonDir(gitDir);
+        String gitUri = readConfigValue(new File(commonDir, "config"), "remote \"origin\"", "url");
+        String gitBranch = null;
+        String gitCommit = null;
+        String head = readFirstLine(new File(gitDir, "HEAD"));
+        if (head != null && head.startsWith("ref:")) {
+            String headRef = head.substring(4).trim();
+            if (headRef.startsWith(branchRefPrefix)) {
+                gitBranch = headRef.substring(branchRefPrefix.length());
+            }
+            gitCommit = readRef(gitDir, commonDir, headRef);
+        } else if (head != null && head.matches("[0-9a-f]{40,64}")) {
+            gitCommit = head;
+        }
+        if (gitCommit == null) {
+            String response = runGitCommand(repoDir, "rev-parse", "--abbrev-ref", "HEAD", "HEAD");
+            if (response != null && response.trim().split("\\s+").length == 2) {
+                String[] refs = response.trim().split("\\s+");
+                gitBranch = refs[0].equals("HEAD") ? null : refs[0];
+                gitCommit = refs[1];
+            }
+        }
         if (gitUri == null) {
+            String response = runGitCommand(repoDir, "config", "--get", "remote.origin.url");
+            if (response != null) {
+                gitUri = response.trim();
+            }
+        }
+        if (gitUri == null || gitUri.isEmpty()) {
             throw new CodeInspectException("Not a Git Repository");
         }
-        String gitBranch = getGitBranchFromLocalRepo();
-        String gitCommit = getGitCommitFromLocalRepo();
         init(gitUri, gitBranch, gitCommit);
     }
 
-    private static String runGitCommand(String gitCommand) throws CodeInspectException {
-        CommandRunner runner = new CommandRunner(gitCommand, "Git");
-        runner.suppressConsoleLog();
-        try {
-            runner.execute();
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
+    static File resolveGitDir(File repoDir) {
+        File gitDir = new File(repoDir, ".git");
+        if (gitDir.isDirectory()) {
+            return gitDir;
+        }
+        String gitDirLink = readFirstLine(gitDir);
+        if (gitDirLink != null && gitDirLink.startsWith("gitdir:")) {
+            gitDir = new File(gitDirLink.substring(7).trim());
+            if (!gitDir.isAbsolute()) {
+                gitDir = new File(repoDir, gitDir.getPath());
+            }
+            if (gitDir.isDirectory()) {
+                return gitDir;
+            }
+        }
+        return null;
+    }
+
+    static File resolveCommonDir(File gitDir) {
+        String commonDirPath = readFirstLine(new File(gitDir, "commondir"));
+        if (commonDirPath == null) {
+            return gitDir;
+        }
+        File commonDir = new File(commonDirPath);
+        if (!commonDir.isAbsolute()) {
+            commonDir = new File(gitDir, commonDirPath);
+        }
+        return commonDir;
+    }
+
+    private static String readFirstLine(File file) {
+        if (!file.isFile()) {
             return null;
         }
-        String response = runner.getResult();
-        if (response.contains("command not found") || response.contains("is currently not installed")) {
-            throw new CodeInspectException("Git was not found in local environment before proceeding");
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (lines.isEmpty()) {
+                return null;
+            }
+            return lines.get(0).trim();
+        } catch (IOException e) {
+            return null;
         }
-        return response;
     }
 
-    private static String getGitUrlFromLocalRepo() throws CodeInspectException {
-        String response = runGitCommand("git config --get remote.origin.url");
-        if (response != null) {
-            return response.trim();
+    private static String readRef(File gitDir, File commonDir, String refName) {
+        String commit = readFirstLine(new File(gitDir, refName));
+        if (commit == null) {
+            commit = readFirstLine(new File(commonDir, refName));
+        }
+        if (commit != null) {
+            return commit;
+        }
+        File packedRefs = new File(commonDir, "packed-refs");
+        if (!packedRefs.isFile()) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(packedRefs.toPath(), StandardCharsets.UTF_8)) {
+                if (line.endsWith(" " + refName) && !line.startsWith("#") && !line.startsWith("^")) {
+                    return line.substring(0, line.indexOf(' '));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         return null;
     }
 
-    private static String getGitBranchFromLocalRepo() throws CodeInspectException {
-        String response = runGitCommand("git branch");
+    static String readConfigValue(File configFile, String section, String key) {
+        if (!configFile.isFile()) {
+            return null;
+        }
         try {
-            if (response != null) {
-                return response.split("\\s+")[1];
+            boolean inSection = false;
+            for (String line : Files.readAllLines(configFile.toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.startsWith("[")) {
+                    inSection = line.equalsIgnoreCase("[" + section + "]");
+                } else if (inSection && line.contains("=")) {
+                    String[] entry = line.split("=", 2);
+                    if (entry[0].trim().equalsIgnoreCase(key)) {
+                        String value = entry[1].trim();
+                        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                            value = value.substring(1, value.length() - 1);
+                        }
+                        return value;
+                    }
+                }
             }
-        } catch (Exception ignored) {
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         return null;
     }
 
-    private static String getGitCommitFromLocalRepo() throws CodeInspectException {
-        String commit = runGitCommand("git show --format=%H --no-patch");
-        if (commit == null || commit.isEmpty()) {
+    private static String runGitCommand(File repoDir, String... gitArgs) throws CodeInspectException {
+        return runGitCommand(repoDir, null, gitArgs);
+    }
+
+    static String runGitCommand(File repoDir, CommandUsageReport usageReport, String... gitArgs)
+            throws CodeInspectException {
+        List<String> gitCommand = new ArrayList<>();
+        gitCommand.add("git");
+        gitCommand.addAll(Arrays.asList(gitArgs));
+        CommandRunner runner = new CommandRunner(gitCommand, repoDir, "Git");
+        runner.suppressConsoleLog();
+        if (usageReport != null) {
+            runner.recordUsageTo(usageReport);
+        }
+        int exitCode;
+        try {
+            exitCode = runner.execute();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
             return null;
         }
-        return commit.trim();
+        String response = runner.getResult();
+        if (response.contains("command not found") || response.contains("is currently not installed")) {
+            throw new CodeInspectException("Git was not found in local environment before proceeding");
+        }
+        if (exitCode != 0) {
+            if (!response.trim().isEmpty()) {
+                System.out.println("[GIT] " + response.trim());
+            }
+            return null;
+        }
+        return response;
     }
 
-    private static GitRepo getFromLocal() {
+    private static GitRepo getFromLocal(File repoDir) {
         try {
-            return new GitRepo();
+            return new GitRepo(repoDir);
         } catch (CodeInspectException e) {
             return null;
         }
@@ -89,7 +214,7 @@ public class GitRepo {
         String[] urlSplit = url.split("/");
         String host = urlSplit[0];
         String repoName = urlSplit[urlSplit.length - 1];
-        String owner = url.replaceFirst(host + "/", "");
+        String owner = url.startsWith(host + "/") ? url.substring(host.length() + 1) : url;
         owner = removeEndingSequence(owner, "/" + repoName);
         this.gitRepoSlug = owner + "/" + repoName;
         this.gitRepoWebURL = getWebURL(host, owner, repoName);
@@ -138,67 +263,385 @@ public class GitRepo {
         return gitRepoSlug;
     }
 
-    synchronized void cloneRepo(GitCredential credential) throws CodeInspectException {
-        File currentDir = new File(System.getProperty("user.dir"));
-        if (currentDir.list() != null) {
-            if (Objects.requireNonNull(currentDir.list()).length > 0) {
-                throw new CodeInspectException("Not an empty directory");
-            }
+    private static File getMirrorCacheDir() throws CodeInspectException {
+        String cachePath = CodeInspectEnv.CODEINSPECT_GIT_CACHE.getAsString();
+        if (cachePath == null || cachePath.isEmpty()) {
+            return null;
         }
-        if (getFromLocal() != null) {
-            throw new CodeInspectException("A repository already exists");
+        File cacheDir = new File(cachePath);
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            throw new CodeInspectException("Unable to create git cache directory: " + cachePath);
         }
-        StringBuilder cloneCommand = new StringBuilder();
-        cloneCommand.append("git clone ");
-        if (this.gitRepoBranch != null && !this.gitRepoBranch.isEmpty()) {
-            cloneCommand.append("--branch ").append(this.gitRepoBranch).append(" ");
+        return cacheDir;
+    }
+
+    private static Object getMirrorLock(String mirrorKey) {
+        Object lock = mirrorLocks.get(mirrorKey);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = mirrorLocks.putIfAbsent(mirrorKey, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
         }
-        cloneCommand.append("--depth 1 ");
-        String cloneUri;
+        return lock;
+    }
+
+    private String getRemoteUri(GitCredential credential) throws CodeInspectException {
         File localSshPrivateKeyFile = new File(System.getProperty("user.home") + File.separator +
                 ".ssh" + File.separator + "id_rsa");
         if (credential != null) {
             if (credential.getSshPrivateKeyFile() != null) {
-                cloneUri = this.gitRepoSshUri;
                 try {
                     Files.copy(credential.getSshPrivateKeyFile().toPath(), localSshPrivateKeyFile.toPath(),
                             StandardCopyOption.REPLACE_EXISTING);
                 } catch (IOException e) {
                     throw new CodeInspectException(e);
                 }
-                cloneCommand.append(cloneUri);
-            } else {
-                cloneUri = this.gitRepoHttpUri;
-                String[] splitUrl = this.gitRepoHttpUri.split("//");
-                cloneCommand.append(splitUrl[0]).append("//").append(credential.getGitUsername())
-                        .append(":").append(credential.getGitAccessToken()).append("@").append(splitUrl[1]);
+                return this.gitRepoSshUri;
+            }
+            return this.gitRepoHttpUri;
+        }
+        if (localSshPrivateKeyFile.exists()) {
+            return this.gitRepoSshUri;
+        }
+        return this.gitRepoHttpUri;
+    }
+
+    private String[] withCredential(GitCredential credential, String remoteUri, String... gitArgs) {
+        List<String> command = new ArrayList<>();
+        if (credential != null && credential.getSshPrivateKeyFile() == null && remoteUri.equals(gitRepoHttpUri)) {
+            String basicAuth = Base64.getEncoder().encodeToString((credential.getGitUsername() + ":" +
+                    credential.getGitAccessToken()).getBytes(StandardCharsets.UTF_8));
+            command.add("-c");
+            command.add("http.https://" + getHost() + "/.extraHeader=Authorization: Basic " + basicAuth);
+        }
+        command.addAll(Arrays.asList(gitArgs));
+        return command.toArray(new String[0]);
+    }
+
+    String getHost() {
+        return gitRepoWebURL.split("//")[1].split("/")[0];
+    }
+
+    private String getMirrorKey() {
+        return (getHost() + "_" + gitRepoSlug).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private void updateMirror(File cacheDir, File mirrorDir, GitCredential credential, String remoteUri,
+                              CommandUsageReport usageReport)
+            throws CodeInspectException {
+        String mirrorGitDir = "--git-dir=" + mirrorDir.getAbsolutePath();
+        if (!new File(mirrorDir, "HEAD").exists()) {
+            System.out.println("Creating mirror: " + mirrorDir.getAbsolutePath());
+            if (runGitCommand(cacheDir, usageReport, "init", "--bare", mirrorDir.getAbsolutePath()) == null) {
+                throw new CodeInspectException("Failed to create the mirror for " + gitRepoSlug);
+            }
+        }
+        System.out.println("Updating mirror: " + mirrorDir.getAbsolutePath());
+        if (runGitCommand(cacheDir, usageReport, withCredential(credential, remoteUri, mirrorGitDir, "fetch",
+                "--prune", "--tags", remoteUri, "+refs/heads/*:refs/heads/*")) == null) {
+            throw new CodeInspectException("Failed to update the mirror for " + gitRepoSlug);
+        }
+        String remoteHead = runGitCommand(cacheDir, usageReport, withCredential(credential, remoteUri,
+                "ls-remote", "--symref", remoteUri, "HEAD"));
+        if (remoteHead != null && remoteHead.startsWith("ref:")) {
+            String headRef = remoteHead.substring(4).trim().split("\\s+")[0];
+            runGitCommand(cacheDir, usageReport, mirrorGitDir, "symbolic-ref", "HEAD", headRef);
+        }
+    }
+
+    private void cloneFromMirror(File cacheDir, GitCredential credential, File repoDir, List<String> sparseDirs,
+                                 CommandUsageReport usageReport) throws CodeInspectException {
+        String mirrorKey = getMirrorKey();
+        File mirrorDir = new File(cacheDir, mirrorKey + ".git");
+        String remoteUri = getRemoteUri(credential);
+        System.out.println("Cloning Repository: " + remoteUri + " [Mirror: " + mirrorDir.getAbsolutePath() + "]");
+        synchronized (getMirrorLock(mirrorKey)) {
+            try (FileChannel lockChannel = FileChannel.open(new File(cacheDir, mirrorKey + ".lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = lockChannel.lock()) {
+                if (!lock.isValid()) {
+                    throw new CodeInspectException("Unable to lock the mirror: " + mirrorDir.getAbsolutePath());
+                }
+                updateMirror(cacheDir, mirrorDir, credential, remoteUri, usageReport);
+                List<String> cloneCommand = new ArrayList<>();
+                cloneCommand.add("clone");
+                cloneCommand.add("--reference");
+                cloneCommand.add(mirrorDir.getAbsolutePath());
+                cloneCommand.add("--dissociate");
+                if (sparseDirs != null) {
+                    cloneCommand.add("--no-checkout");
+                }
+                if (this.gitRepoBranch != null && !this.gitRepoBranch.isEmpty()) {
+                    cloneCommand.add("--branch");
+                    cloneCommand.add(this.gitRepoBranch);
+                }
+                cloneCommand.add(mirrorDir.getAbsolutePath());
+                cloneCommand.add(".");
+                if (runGitCommand(repoDir, usageReport, cloneCommand.toArray(new String[0])) == null) {
+                    throw new CodeInspectException("Failed to clone " + gitRepoSlug + " from the mirror");
+                }
+            } catch (IOException e) {
+                throw new CodeInspectException(e);
+            }
+        }
+        runGitCommand(repoDir, usageReport, "remote", "set-url", "origin", remoteUri);
+        if (sparseDirs != null) {
+            applySparseCheckout(credential, remoteUri, repoDir, sparseDirs, usageReport);
+            checkout(credential, remoteUri, repoDir, usageReport);
+        }
+    }
+
+    private void cloneFromRemote(GitCredential credential, File repoDir, List<String> sparseDirs,
+                                 CommandUsageReport usageReport) throws CodeInspectException {
+        List<String> cloneCommand = new ArrayList<>();
+        cloneCommand.add("clone");
+        if (sparseDirs != null) {
+            cloneCommand.add("--filter=blob:none");
+            cloneCommand.add("--no-checkout");
+        }
+        if (this.gitRepoBranch != null && !this.gitRepoBranch.isEmpty()) {
+            cloneCommand.add("--branch");
+            cloneCommand.add(this.gitRepoBranch);
+        }
+        cloneCommand.add("--depth");
+        cloneCommand.add("1");
+        String remoteUri = getRemoteUri(credential);
+        cloneCommand.add(remoteUri);
+        cloneCommand.add(".");
+        System.out.println("Cloning Repository: " + remoteUri);
+        if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                cloneCommand.toArray(new String[0]))) != null && sparseDirs != null) {
+            applySparseCheckout(credential, remoteUri, repoDir, sparseDirs, usageReport);
+            checkout(credential, remoteUri, repoDir, usageReport);
+        }
+    }
+
+    private void applySparseCheckout(GitCredential credential, String remoteUri, File repoDir,
+                                     List<String> sparseDirs, CommandUsageReport usageReport)
+            throws CodeInspectException {
+        List<String> sparseCommand = new ArrayList<>(Arrays.asList("sparse-checkout", "set", "--cone"));
+        sparseCommand.addAll(sparseDirs);
+        System.out.println("Limiting checkout to: " + String.join(", ", sparseDirs));
+        if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                sparseCommand.toArray(new String[0]))) == null) {
+            System.out.println("Sparse checkout is not available, checking out the complete tree");
+            if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                    "sparse-checkout", "disable")) == null) {
+                throw new CodeInspectException("Failed to set up the checkout of " + gitRepoSlug);
             }
+        }
+    }
+
+    private void checkout(GitCredential credential, String remoteUri, File repoDir, CommandUsageReport usageReport,
+                          String... checkoutArgs) throws CodeInspectException {
+        List<String> checkoutCommand = new ArrayList<>();
+        checkoutCommand.add("checkout");
+        checkoutCommand.addAll(Arrays.asList(checkoutArgs));
+        if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                checkoutCommand.toArray(new String[0]))) == null) {
+            throw new CodeInspectException("Failed to check out " + gitRepoSlug);
+        }
+    }
+
+    private boolean isAtCommit(String commitHash) {
+        return gitRepoCommitHash != null && gitRepoCommitHash.toLowerCase().startsWith(commitHash.toLowerCase());
+    }
+
+    private static String[] withArgs(List<String> command, String... args) {
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(Arrays.asList(args));
+        return fullCommand.toArray(new String[0]);
+    }
+
+    private boolean hasCommit(File repoDir, CommandUsageReport usageReport) throws CodeInspectException {
+        return runGitCommand(repoDir, usageReport, "cat-file", "-e", gitRepoCommitHash + "^{commit}") != null;
+    }
+
+    private void fetchCommit(GitCredential credential, File repoDir, List<String> sparseDirs,
+                             CommandUsageReport usageReport) throws CodeInspectException {
+        String remoteUri = getRemoteUri(credential);
+        System.out.println("Fetching commit: " + gitRepoCommitHash + " from " + remoteUri);
+        if (gitRepoBranch != null && !gitRepoBranch.isEmpty()) {
+            String branchHead = runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                    "ls-remote", "--heads", remoteUri, branchRefPrefix + gitRepoBranch));
+            if (branchHead == null || branchHead.trim().isEmpty()) {
+                throw new CodeInspectException("Something went wrong. Please validate the branch name");
+            }
+        }
+        runGitCommand(repoDir, usageReport, "init", "--quiet");
+        runGitCommand(repoDir, usageReport, "remote", "add", "origin", remoteUri);
+        List<String> fetchCommand = new ArrayList<>();
+        fetchCommand.add("fetch");
+        if (sparseDirs != null) {
+            fetchCommand.add("--filter=blob:none");
+        }
+        String checkoutRef = null;
+        if (gitRepoCommitHash.matches("[0-9a-fA-F]{40}") && runGitCommand(repoDir, usageReport,
+                withCredential(credential, remoteUri, withArgs(fetchCommand, "--depth", "1", "origin",
+                        gitRepoCommitHash))) != null) {
+            checkoutRef = "FETCH_HEAD";
         } else {
-            if (localSshPrivateKeyFile.exists()) {
-                cloneUri = this.gitRepoSshUri;
-            } else {
-                cloneUri = this.gitRepoHttpUri;
+            String branchRef = "HEAD";
+            if (gitRepoBranch != null && !gitRepoBranch.isEmpty()) {
+                branchRef = branchRefPrefix + gitRepoBranch;
+            }
+            for (int depth : fetchDepthSteps) {
+                System.out.println("Fetching " + branchRef + " at depth " + depth + " to find the commit");
+                if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                        withArgs(fetchCommand, "--depth", depth + "", "origin", branchRef))) == null) {
+                    throw new CodeInspectException("Failed to fetch " + branchRef + " from " + remoteUri);
+                }
+                if (hasCommit(repoDir, usageReport)) {
+                    checkoutRef = gitRepoCommitHash;
+                    break;
+                }
+            }
+            if (checkoutRef == null) {
+                System.out.println("Fetching the complete history of " + branchRef + " to find the commit");
+                runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                        withArgs(fetchCommand, "--unshallow", "origin", branchRef)));
+                if (hasCommit(repoDir, usageReport)) {
+                    checkoutRef = gitRepoCommitHash;
+                }
             }
-            cloneCommand.append(cloneUri);
         }
-        cloneCommand.append(" .");
-        System.out.println("Cloning Repository: " + cloneUri);
-        runGitCommand(cloneCommand.toString());
-        GitRepo localRepo = getFromLocal();
+        if (checkoutRef == null) {
+            throw new CodeInspectException("Commit " + gitRepoCommitHash + " was not found in " + remoteUri);
+        }
+        if (sparseDirs != null) {
+            applySparseCheckout(credential, remoteUri, repoDir, sparseDirs, usageReport);
+        }
+        if (gitRepoBranch != null && !gitRepoBranch.isEmpty()) {
+            checkout(credential, remoteUri, repoDir, usageReport, "--quiet", "-B", gitRepoBranch, checkoutRef);
+        } else {
+            checkout(credential, remoteUri, repoDir, usageReport, "--quiet", checkoutRef);
+        }
+    }
+
+    private static String resolveCommit(File repoDir, String ref, CommandUsageReport usageReport)
+            throws CodeInspectException {
+        String commit = runGitCommand(repoDir, usageReport, "rev-parse", "--verify", "--quiet", ref + "^{commit}");
+        if (commit == null || commit.trim().isEmpty()) {
+            return null;
+        }
+        return commit.trim();
+    }
+
+    private static boolean isShallow(File repoDir) {
+        File gitDir = resolveGitDir(repoDir);
+        return gitDir != null && new File(resolveCommonDir(gitDir), "shallow").isFile();
+    }
+
+    private static String findMergeBase(File repoDir, String baseCommit, CommandUsageReport usageReport)
+            throws CodeInspectException {
+        String mergeBase = runGitCommand(repoDir, usageReport, "merge-base", baseCommit, "HEAD");
+        if (mergeBase == null || mergeBase.trim().isEmpty()) {
+            return null;
+        }
+        return mergeBase.trim();
+    }
+
+    CodeInspectChangeSet getChangeSet(GitCredential credential, File repoDir, String baseRef,
+                                      CommandUsageReport usageReport) throws CodeInspectException {
+        String remoteUri = getRemoteUri(credential);
+        boolean shallow = isShallow(repoDir);
+        String baseCommit = resolveCommit(repoDir, baseRef, usageReport);
+        if (baseCommit == null) {
+            baseCommit = resolveCommit(repoDir, "origin/" + baseRef, usageReport);
+        }
+        if (baseCommit == null) {
+            System.out.println("Fetching base: " + baseRef);
+            List<String> fetchCommand = new ArrayList<>(Arrays.asList("fetch", "--quiet"));
+            if (shallow) {
+                fetchCommand.add("--depth");
+                fetchCommand.add(fetchDepthSteps[0] + "");
+            }
+            if (runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                    withArgs(fetchCommand, remoteUri, baseRef))) != null) {
+                baseCommit = resolveCommit(repoDir, "FETCH_HEAD", usageReport);
+            }
+        }
+        if (baseCommit == null) {
+            throw new CodeInspectException("Unable to resolve the base ref: " + baseRef);
+        }
+        String mergeBase = findMergeBase(repoDir, baseCommit, usageReport);
+        if (mergeBase == null && shallow) {
+            String headCommit = resolveCommit(repoDir, "HEAD", usageReport);
+            for (int depth : fetchDepthSteps) {
+                System.out.println("Deepening history by " + depth + " commit(s) to find the merge base with " +
+                        baseRef);
+                if (headCommit == null || runGitCommand(repoDir, usageReport, withCredential(credential, remoteUri,
+                        "fetch", "--quiet", "--deepen=" + depth, remoteUri, baseCommit, headCommit)) == null) {
+                    break;
+                }
+                mergeBase = findMergeBase(repoDir, baseCommit, usageReport);
+                if (mergeBase != null) {
+                    break;
+                }
+            }
+        }
+        if (mergeBase != null) {
+            baseCommit = mergeBase;
+        } else {
+            System.out.println("No merge base found with " + baseRef + ", comparing against it directly");
+        }
+        String fileList = runGitCommand(repoDir, usageReport, "-c", "core.quotePath=false", "diff",
+                "--name-only", "-z", "--find-renames", "--diff-filter=ACMR", baseCommit, "HEAD");
+        if (fileList == null) {
+            throw new CodeInspectException("Unable to compute the changes since " + baseRef);
+        }
+        String diff = runGitCommand(repoDir, usageReport, "-c", "core.quotePath=false", "diff", "--no-color",
+                "--no-ext-diff", "--no-prefix", "--unified=0", "--find-renames", "--diff-filter=ACMR",
+                baseCommit, "HEAD");
+        if (diff != null) {
+            return CodeInspectChangeSet.fromDiff(repoDir, baseCommit, fileList, diff);
+        }
+        return CodeInspectChangeSet.fromFileList(repoDir, baseCommit, fileList);
+    }
+
+    synchronized void cloneRepo(GitCredential credential, File repoDir, List<String> sparseDirs,
+                                CommandUsageReport usageReport) throws CodeInspectException {
+        if (repoDir.list() != null) {
+            if (Objects.requireNonNull(repoDir.list()).length > 0) {
+                throw new CodeInspectException("Not an empty directory");
+            }
+        }
+        if (getFromLocal(repoDir) != null) {
+            throw new CodeInspectException("A repository already exists");
+        }
+        File cacheDir = getMirrorCacheDir();
+        boolean commitRequested = this.gitRepoCommitHash != null && !this.gitRepoCommitHash.isEmpty();
+        if (cacheDir != null) {
+            cloneFromMirror(cacheDir, credential, repoDir, sparseDirs, usageReport);
+        } else if (commitRequested) {
+            fetchCommit(credential, repoDir, sparseDirs, usageReport);
+        } else {
+            cloneFromRemote(credential, repoDir, sparseDirs, usageReport);
+        }
+        GitRepo localRepo = getFromLocal(repoDir);
         if (localRepo == null) {
             throw new CodeInspectException("Failed to clone the repo");
         }
         if (this.gitRepoBranch != null && !this.gitRepoBranch.isEmpty()) {
-            GitRepo local = GitRepo.getFromLocal();
-            if (local == null || !local.gitRepoBranch.equalsIgnoreCase(this.gitRepoBranch)) {
+            if (!this.gitRepoBranch.equalsIgnoreCase(localRepo.gitRepoBranch)) {
                 throw new CodeInspectException("Something went wrong. Please validate the branch name");
             }
         }
-        if (this.gitRepoCommitHash != null && !this.gitRepoCommitHash.isEmpty()) {
-            System.out.println("Checking out commit: " + gitRepoCommitHash);
-            runGitCommand("git checkout " + this.gitRepoCommitHash);
-            GitRepo local = GitRepo.getFromLocal();
-            if (local == null || !local.gitRepoCommitHash.equalsIgnoreCase(this.gitRepoCommitHash)) {
+        if (commitRequested) {
+            if (!localRepo.isAtCommit(this.gitRepoCommitHash)) {
+                System.out.println("Checking out commit: " + gitRepoCommitHash);
+                String remoteUri = getRemoteUri(credential);
+                if (this.gitRepoBranch != null && !this.gitRepoBranch.isEmpty()) {
+                    checkout(credential, remoteUri, repoDir, usageReport, "--quiet", "-B", this.gitRepoBranch,
+                            this.gitRepoCommitHash);
+                } else {
+                    checkout(credential, remoteUri, repoDir, usageReport, "--quiet", this.gitRepoCommitHash);
+                }
+                localRepo = getFromLocal(repoDir);
+            }
+            if (localRepo == null || !localRepo.isAtCommit(this.gitRepoCommitHash)) {
                 throw new CodeInspectException("Something went wrong. Please validate the branch name");
             }
         }
@@ -0,0 +1,50 @@
+package me.shib.security.codeinspect;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+final class JsonFindingSink implements FindingSink {
+
+    private static final transient Gson gson = new Gson();
+
+    private final File file;
+    private final Writer writer;
+
+    JsonFindingSink(File file) throws CodeInspectException {
+        this.file = file;
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory: " + parent.getAbsolutePath());
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                    StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new CodeInspectException(e);
+        }
+    }
+
+    @Override
+    public void accept(CodeInspectFinding finding) throws IOException {
+        writer.write(gson.toJson(finding.toJson(gson)));
+        writer.write('\n');
+    }
+
+    @Override
+    public void supersede(CodeInspectFinding finding) throws IOException {
+        accept(finding);
+    }
+
+    @Override
+    public void complete(CodeInspectResult result) throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close(boolean completed) throws IOException {
+        writer.close();
+        System.out.println("Findings written to: " + file.getAbsolutePath());
+    }
+}
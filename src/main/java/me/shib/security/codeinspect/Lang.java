@@ -1,6 +1,5 @@
 package me.shib.security.codeinspect;
 
-import java.io.File;
 import java.util.*;
 
 public enum Lang {
@@ -12,110 +11,77 @@ public enum Lang {
     Lua(new String[]{"lua"}), TypeScript(new String[]{"ts"}), Erlang(new String[]{"erl"}),
     CoffeeScript(new String[]{"coffee"});
 
+    private static final transient Map<String, Lang> extensionMap = buildExtensionMap();
+
     private final transient String[] extensions;
 
     Lang(String[] extensions) {
         this.extensions = extensions;
     }
 
-    private static int indexOfLastSeparator(final String filename) {
-        if (filename == null) {
-            return -1;
+    private static Map<String, Lang> buildExtensionMap() {
+        Map<String, Lang> extensionMap = new HashMap<>();
+        for (Lang lang : Lang.values()) {
+            for (String extension : lang.extensions) {
+                extensionMap.put(extension, lang);
+            }
         }
-        final int lastUnixPos = filename.lastIndexOf('/');
-        final int lastWindowsPos = filename.lastIndexOf('\\');
-        return Math.max(lastUnixPos, lastWindowsPos);
+        return extensionMap;
     }
 
-    private static int indexOfExtension(final String filename) {
-        if (filename == null) {
-            return -1;
-        }
-        final int extensionPos = filename.lastIndexOf('.');
-        final int lastSeparator = indexOfLastSeparator(filename);
-        return lastSeparator > extensionPos ? -1 : extensionPos;
+    static Lang getLangForExtension(String extension) {
+        return extensionMap.get(extension.toLowerCase());
     }
 
-    private static String getExtension(final String filename) {
-        if (filename == null) {
-            return null;
+    private static long[] getLangFilesCount(CodeInspectManifest manifest) {
+        long[] counts = new long[Lang.values().length];
+        if (manifest == null) {
+            return counts;
         }
-        final int index = indexOfExtension(filename);
-        if (index == -1) {
-            return "";
-        } else {
-            return filename.substring(index + 1);
-        }
-    }
-
-    private static void traverseAndUpdateExtensionCount(Map<String, Integer> extensionCountMap, File file) {
-        if (!file.isHidden()) {
-            if (file.isDirectory()) {
-                File[] files = file.listFiles();
-                if (files != null) {
-                    for (File f : files) {
-                        traverseAndUpdateExtensionCount(extensionCountMap, f);
-                    }
-                }
-            } else {
-                String extension = getExtension(file.getAbsolutePath());
-                Integer count = extensionCountMap.get(extension);
-                if (count != null) {
-                    count++;
-                } else {
-                    count = 1;
-                }
-                extensionCountMap.put(extension, count);
+        for (Lang lang : Lang.values()) {
+            for (String extension : new HashSet<>(Arrays.asList(lang.extensions))) {
+                counts[lang.ordinal()] += manifest.getSourceFileCount(extension);
             }
         }
+        return counts;
     }
 
-    private static Map<Lang, Integer> getLangFilesCount(File dir) {
-        Map<Lang, Integer> langFilesCountMap = new HashMap<>();
-        Map<String, Integer> extensionCountMap = new HashMap<>();
-        if (dir != null) {
-            traverseAndUpdateExtensionCount(extensionCountMap, dir);
-        }
+    static List<Lang> getLangListByUsage(final long[] langFilesCount) {
+        List<Lang> langListByUsage = new ArrayList<>();
         for (Lang lang : Lang.values()) {
-            int count = 0;
-            for (String extension : lang.extensions) {
-                Integer extCount = extensionCountMap.get(extension);
-                if (extCount != null) {
-                    count += extCount;
-                }
-            }
-            if (count > 0) {
-                langFilesCountMap.put(lang, count);
+            if (langFilesCount[lang.ordinal()] > 0) {
+                langListByUsage.add(lang);
             }
         }
-        return langFilesCountMap;
+        Collections.sort(langListByUsage, new Comparator<Lang>() {
+            @Override
+            public int compare(Lang lang1, Lang lang2) {
+                return Long.compare(langFilesCount[lang2.ordinal()], langFilesCount[lang1.ordinal()]);
+            }
+        });
+        return langListByUsage;
     }
 
-    private static List<Lang> getLangListByUsage(File dir) {
-        Map<Lang, Integer> langFilesCountMap = getLangFilesCount(dir);
-        Map<Integer, List<Lang>> countToLang = new HashMap<>();
-        for (Map.Entry<Lang, Integer> entry : langFilesCountMap.entrySet()) {
-            List<Lang> langList = countToLang.get(entry.getValue());
-            if (langList == null) {
-                langList = new ArrayList<>();
-            }
-            langList.add(entry.getKey());
-            countToLang.put(entry.getValue(), langList);
+    static List<Lang> getLangsAboveThreshold(long[] langFilesCount, int thresholdPercentage) {
+        long totalCount = 0;
+        for (long count : langFilesCount) {
+            totalCount += count;
         }
-        List<Integer> counts = new ArrayList<>(countToLang.keySet());
-        Collections.sort(counts);
-        Collections.reverse(counts);
-        List<Lang> langListByUsage = new ArrayList<>();
-        for (Integer count : counts) {
-            if (count != null && count > 0) {
-                langListByUsage.addAll(countToLang.get(count));
+        List<Lang> langs = new ArrayList<>();
+        for (Lang lang : getLangListByUsage(langFilesCount)) {
+            if (langFilesCount[lang.ordinal()] * 100 >= thresholdPercentage * totalCount) {
+                langs.add(lang);
             }
         }
-        return langListByUsage;
+        return langs;
+    }
+
+    static List<Lang> getLangsFromManifest(CodeInspectManifest manifest, int thresholdPercentage) {
+        return getLangsAboveThreshold(getLangFilesCount(manifest), thresholdPercentage);
     }
 
-    static Lang getLangFromDir(File dir) {
-        List<Lang> langList = getLangListByUsage(dir);
+    static Lang getLangFromManifest(CodeInspectManifest manifest) {
+        List<Lang> langList = getLangListByUsage(getLangFilesCount(manifest));
         if (langList.size() > 0) {
             return langList.get(0);
         } else {
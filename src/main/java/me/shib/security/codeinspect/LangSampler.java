@@ -0,0 +1,117 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+final class LangSampler {
+
+    private static final transient int minSampleFiles = 1000;
+    private static final transient int maxSampleFiles = 50000;
+    private static final transient double confidenceFactor = 2.0;
+
+    private final boolean multiLang;
+    private final int thresholdPercentage;
+    private final Set<String> skippedDirs;
+    private final long[] langFilesCount;
+    private long sampledFiles;
+    private long sampledLangFiles;
+
+    LangSampler(boolean multiLang, int thresholdPercentage) {
+        this.multiLang = multiLang;
+        this.thresholdPercentage = thresholdPercentage;
+        this.skippedDirs = SourceTreeWalker.getSkippedDirs();
+        this.langFilesCount = new long[Lang.values().length];
+    }
+
+    private double getMargin() {
+        return confidenceFactor / Math.sqrt(sampledLangFiles);
+    }
+
+    private double getShare(Lang lang) {
+        return (double) langFilesCount[lang.ordinal()] / sampledLangFiles;
+    }
+
+    private boolean isConclusive() {
+        if (sampledLangFiles < minSampleFiles) {
+            return false;
+        }
+        List<Lang> langsByUsage = Lang.getLangListByUsage(langFilesCount);
+        if (multiLang) {
+            for (Lang lang : langsByUsage) {
+                if (Math.abs(getShare(lang) - thresholdPercentage / 100.0) <= getMargin()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        double runnerUpShare = langsByUsage.size() > 1 ? getShare(langsByUsage.get(1)) : 0;
+        return getShare(langsByUsage.get(0)) - runnerUpShare > getMargin();
+    }
+
+    private List<Lang> getResult() {
+        if (!multiLang) {
+            List<Lang> langsByUsage = Lang.getLangListByUsage(langFilesCount);
+            return langsByUsage.isEmpty() ? langsByUsage : langsByUsage.subList(0, 1);
+        }
+        return Lang.getLangsAboveThreshold(langFilesCount, thresholdPercentage);
+    }
+
+    private void countFile(String name) {
+        sampledFiles++;
+        int extensionPos = name.lastIndexOf('.');
+        if (extensionPos >= 0) {
+            Lang lang = Lang.getLangForExtension(name.substring(extensionPos + 1));
+            if (lang != null) {
+                langFilesCount[lang.ordinal()]++;
+                sampledLangFiles++;
+            }
+        }
+    }
+
+    List<Lang> detect(File dir) {
+        Path root = dir.toPath().toAbsolutePath().normalize();
+        final Deque<QueuedDir> queue = new ArrayDeque<>();
+        queue.add(new QueuedDir(root, GitIgnore.forDirectory(root)));
+        boolean rootLoaded = true;
+        while (!queue.isEmpty()) {
+            QueuedDir queuedDir = queue.removeFirst();
+            GitIgnore gitIgnore = rootLoaded ? queuedDir.gitIgnore
+                    : GitIgnore.load(queuedDir.gitIgnore, queuedDir.dir, queuedDir.dir.resolve(".gitignore"));
+            rootLoaded = false;
+            final GitIgnore dirIgnore = gitIgnore;
+            SourceTreeWalker.listDirectory(queuedDir.dir, dirIgnore, skippedDirs, new SourceTreeWalker.EntryHandler() {
+                @Override
+                void directory(Path entry) {
+                    queue.addLast(new QueuedDir(entry, dirIgnore));
+                }
+
+                @Override
+                void file(Path entry, String name, BasicFileAttributes attributes) {
+                    countFile(name);
+                }
+            });
+            if (isConclusive()) {
+                System.out.println("Detected language(s) from a sample of " + sampledFiles + " file(s)");
+                return getResult();
+            }
+            if (sampledFiles >= maxSampleFiles) {
+                System.out.println("Language sample of " + sampledFiles + " file(s) was inconclusive, " +
+                        "counting all files");
+                return null;
+            }
+        }
+        return getResult();
+    }
+
+    private static final class QueuedDir {
+        private final Path dir;
+        private final GitIgnore gitIgnore;
+
+        private QueuedDir(Path dir, GitIgnore gitIgnore) {
+            this.dir = dir;
+            this.gitIgnore = gitIgnore;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+final class ProcessTree {
+
+    private static final transient File procDir = new File("/proc");
+
+    private ProcessTree() {
+    }
+
+    static long getPid(Process process) {
+        try {
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (Exception ignored) {
+        }
+        try {
+            Field pidField = process.getClass().getDeclaredField("pid");
+            pidField.setAccessible(true);
+            return pidField.getLong(process);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    static String readProcFile(long pid, String name) {
+        try {
+            return new String(Files.readAllBytes(new File(procDir, pid + File.separator + name).toPath()),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static String[] readStatFields(long pid) {
+        String stat = readProcFile(pid, "stat");
+        if (stat == null) {
+            return null;
+        }
+        int commandEnd = stat.lastIndexOf(')');
+        if (commandEnd < 0) {
+            return null;
+        }
+        // Fields following the command name, starting with the state (field 3 of proc(5))
+        return stat.substring(commandEnd + 1).trim().split("\\s+");
+    }
+
+    static Map<Long, List<Long>> getChildrenMap() {
+        Map<Long, List<Long>> childrenMap = new HashMap<>();
+        String[] procEntries = procDir.list();
+        if (procEntries == null) {
+            return childrenMap;
+        }
+        for (String entry : procEntries) {
+            long childPid;
+            try {
+                childPid = Long.parseLong(entry);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            String[] fields = readStatFields(childPid);
+            if (fields != null && fields.length > 1) {
+                long parentPid = Long.parseLong(fields[1]);
+                List<Long> children = childrenMap.get(parentPid);
+                if (children == null) {
+                    children = new ArrayList<>();
+                    childrenMap.put(parentPid, children);
+                }
+                children.add(childPid);
+            }
+        }
+        return childrenMap;
+    }
+
+    static List<Long> getDescendants(long pid, Map<Long, List<Long>> childrenMap) {
+        List<Long> descendants = new ArrayList<>();
+        if (pid <= 0) {
+            return descendants;
+        }
+        Set<Long> visited = new HashSet<>();
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(pid);
+        while (!queue.isEmpty()) {
+            List<Long> children = childrenMap.get(queue.poll());
+            if (children != null) {
+                for (Long child : children) {
+                    if (visited.add(child)) {
+                        descendants.add(child);
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+        return descendants;
+    }
+
+    static List<Long> getDescendants(long pid) {
+        if (pid <= 0) {
+            return new ArrayList<>();
+        }
+        return getDescendants(pid, getChildrenMap());
+    }
+
+    static void destroy(Process process) {
+        long pid = getPid(process);
+        List<Long> descendants = getDescendants(pid);
+        if (descendants.size() > 0) {
+            List<String> killCommand = new ArrayList<>();
+            killCommand.add("kill");
+            killCommand.add("-9");
+            killCommand.add(pid + "");
+            for (Long descendant : descendants) {
+                killCommand.add(descendant + "");
+            }
+            try {
+                new ProcessBuilder(killCommand).start().waitFor(10, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,146 @@
+package me.shib.security.codeinspect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class SnippetCache {
+
+    private static final transient int defaultMaxCachedFiles = 256;
+
+    private final Map<String, IndexedFile> indexedFiles;
+
+    SnippetCache() {
+        this(defaultMaxCachedFiles);
+    }
+
+    SnippetCache(final int maxCachedFiles) {
+        this.indexedFiles = new LinkedHashMap<String, IndexedFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IndexedFile> eldest) {
+                return size() > maxCachedFiles;
+            }
+        };
+    }
+
+    private IndexedFile getIndexedFile(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        IndexedFile indexedFile;
+        synchronized (indexedFiles) {
+            indexedFile = indexedFiles.get(path);
+        }
+        if (indexedFile != null && indexedFile.isCurrent(file)) {
+            return indexedFile;
+        }
+        if (!file.isFile() || file.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+        indexedFile = IndexedFile.index(file);
+        synchronized (indexedFiles) {
+            indexedFiles.put(path, indexedFile);
+        }
+        return indexedFile;
+    }
+
+    ByteBuffer getLines(File file, int startLineNo, int endLineNo) throws IOException {
+        IndexedFile indexedFile = getIndexedFile(file);
+        if (indexedFile == null || startLineNo <= 0 || startLineNo > endLineNo ||
+                endLineNo > indexedFile.getLineCount()) {
+            return null;
+        }
+        return indexedFile.slice(startLineNo, endLineNo);
+    }
+
+    String getSnippet(File file, int startLineNo, int endLineNo) throws IOException {
+        ByteBuffer lines = getLines(file, startLineNo, endLineNo);
+        if (lines == null) {
+            return null;
+        }
+        String snippet = Charset.defaultCharset().decode(lines).toString();
+        if (snippet.indexOf('\r') >= 0) {
+            snippet = snippet.replace("\r\n", "\n").replace('\r', '\n');
+        }
+        return snippet;
+    }
+
+    private static final class IndexedFile {
+        private final MappedByteBuffer content;
+        private final int[] lineStarts;
+        private final int lineCount;
+        private final long lastModified;
+        private final long length;
+
+        private IndexedFile(MappedByteBuffer content, int[] lineStarts, int lineCount,
+                            long lastModified, long length) {
+            this.content = content;
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        private static IndexedFile index(File file) throws IOException {
+            long lastModified = file.lastModified();
+            MappedByteBuffer content;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int size = content.limit();
+            int[] lineStarts = new int[64];
+            int lineCount = 0;
+            int lineStart = 0;
+            for (int i = 0; i < size; i++) {
+                byte b = content.get(i);
+                if (b == '\n' || b == '\r') {
+                    if (lineCount + 1 >= lineStarts.length) {
+                        lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                    }
+                    lineStarts[lineCount++] = lineStart;
+                    if (b == '\r' && i + 1 < size && content.get(i + 1) == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < size) {
+                if (lineCount + 1 >= lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineStarts.length + 1);
+                }
+                lineStarts[lineCount++] = lineStart;
+            }
+            lineStarts[lineCount] = size;
+            return new IndexedFile(content, Arrays.copyOf(lineStarts, lineCount + 1), lineCount,
+                    lastModified, size);
+        }
+
+        private boolean isCurrent(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        private int getLineCount() {
+            return lineCount;
+        }
+
+        private ByteBuffer slice(int startLineNo, int endLineNo) {
+            int start = lineStarts[startLineNo - 1];
+            int end = lineStarts[endLineNo];
+            if (end > start && content.get(end - 1) == '\n') {
+                end--;
+            }
+            if (end > start && content.get(end - 1) == '\r') {
+                end--;
+            }
+            ByteBuffer slice = content.duplicate();
+            slice.position(start);
+            slice.limit(end);
+            return slice.slice();
+        }
+    }
+}
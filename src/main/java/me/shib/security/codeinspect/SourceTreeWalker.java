@@ -0,0 +1,146 @@
+package me.shib.security.codeinspect;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+final class SourceTreeWalker<T> {
+
+    private static final transient String[] defaultSkippedDirs = new String[]{"node_modules", "bower_components",
+            "target", "build", "dist", "out", "vendor", "__pycache__", "venv"};
+    private static final transient ForkJoinPool walkerPool = new ForkJoinPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private final Visitor<T> visitor;
+    private final Set<String> skippedDirs;
+
+    SourceTreeWalker(Visitor<T> visitor) {
+        this(visitor, getSkippedDirs());
+    }
+
+    SourceTreeWalker(Visitor<T> visitor, Set<String> skippedDirs) {
+        this.visitor = visitor;
+        this.skippedDirs = skippedDirs;
+    }
+
+    static Set<String> getSkippedDirs() {
+        Set<String> skippedDirs = new HashSet<>();
+        List<String> envSkippedDirs = CodeInspectEnv.CODEINSPECT_SKIP_DIRS.getAsList();
+        if (envSkippedDirs == null) {
+            skippedDirs.addAll(Arrays.asList(defaultSkippedDirs));
+        } else {
+            for (String dir : envSkippedDirs) {
+                if (!dir.trim().isEmpty()) {
+                    skippedDirs.add(dir.trim());
+                }
+            }
+        }
+        return skippedDirs;
+    }
+
+    static boolean isSkippedPath(String path, Set<String> skippedDirs) {
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('/', start)) >= 0) {
+            String dirName = path.substring(start, end);
+            if (dirName.startsWith(".") || skippedDirs.contains(dirName)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return path.startsWith(".", start);
+    }
+
+    static void listDirectory(Path dir, GitIgnore gitIgnore, Set<String> skippedDirs, EntryHandler handler) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (!skippedDirs.contains(name) && (gitIgnore == null || !gitIgnore.isIgnored(entry, true))) {
+                        handler.directory(entry);
+                    }
+                } else if (attributes.isRegularFile() && (gitIgnore == null || !gitIgnore.isIgnored(entry, false))) {
+                    handler.file(entry, name, attributes);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            System.out.println("Unable to read directory " + dir + ": " + e.getMessage());
+        }
+    }
+
+    T walk(Path root) {
+        root = root.toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return visitor.create();
+        }
+        return walkerPool.invoke(new DirectoryTask(root, GitIgnore.forDirectory(root), true));
+    }
+
+    abstract static class Visitor<T> {
+
+        abstract T create();
+
+        abstract void visitFile(T result, Path file, String name, BasicFileAttributes attributes);
+
+        abstract void merge(T result, T other);
+    }
+
+    abstract static class EntryHandler {
+
+        abstract void directory(Path dir);
+
+        abstract void file(Path file, String name, BasicFileAttributes attributes);
+    }
+
+    private final class DirectoryTask extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final GitIgnore gitIgnore;
+        private final boolean gitIgnoreLoaded;
+
+        private DirectoryTask(Path dir, GitIgnore gitIgnore, boolean gitIgnoreLoaded) {
+            this.dir = dir;
+            this.gitIgnore = gitIgnore;
+            this.gitIgnoreLoaded = gitIgnoreLoaded;
+        }
+
+        @Override
+        protected T compute() {
+            final T result = visitor.create();
+            final List<DirectoryTask> subTasks = new ArrayList<>();
+            final GitIgnore dirIgnore = gitIgnoreLoaded ? gitIgnore
+                    : GitIgnore.load(gitIgnore, dir, dir.resolve(".gitignore"));
+            listDirectory(dir, dirIgnore, skippedDirs, new EntryHandler() {
+                @Override
+                void directory(Path entry) {
+                    DirectoryTask subTask = new DirectoryTask(entry, dirIgnore, false);
+                    subTask.fork();
+                    subTasks.add(subTask);
+                }
+
+                @Override
+                void file(Path entry, String name, BasicFileAttributes attributes) {
+                    visitor.visitFile(result, entry, name, attributes);
+                }
+            });
+            for (DirectoryTask subTask : subTasks) {
+                visitor.merge(result, subTask.join());
+            }
+            return result;
+        }
+    }
+}
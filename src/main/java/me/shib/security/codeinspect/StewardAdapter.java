@@ -27,7 +27,7 @@ final class StewardAdapter {
         }
     }
 
-    private static StewardFinding toStewardFinding(CodeInspectFinding finding) {
+    static StewardFinding toStewardFinding(CodeInspectFinding finding) {
         StewardFinding sf = new StewardFinding(finding.getTitle(), toStewardPriority(finding.getPriority()));
         sf.addContext(finding.getProject());
         sf.addContext(finding.getLang().name());
@@ -38,7 +38,7 @@ final class StewardAdapter {
         return sf;
     }
 
-    static StewardData toStewardData(CodeInspectConfig config, List<CodeInspectFinding> findings) {
+    static StewardData toStewardData(CodeInspectConfig config, List<StewardFinding> findings) {
         StewardData data = new StewardData(config.getProject(), toolName);
         data.addContext(config.getLang().name());
         if (config.getGitRepo() != null) {
@@ -48,8 +48,11 @@ final class StewardAdapter {
             String scanDirContext = "ScanDir-" + config.getScanDirPath();
             data.addContext(scanDirContext);
         }
-        for (CodeInspectFinding finding : findings) {
-            data.addFinding(toStewardFinding(finding));
+        if (config.getChangeSet() != null) {
+            data.addContext("DiffScan");
+        }
+        for (StewardFinding finding : findings) {
+            data.addFinding(finding);
         }
         return data;
     }
@@ -0,0 +1,50 @@
+package me.shib.security.codeinspect;
+
+import me.shib.steward.Steward;
+import me.shib.steward.StewardFinding;
+
+import java.util.*;
+
+final class StewardFindingSink implements FindingSink {
+
+    private final CodeInspectConfig config;
+    private final Map<CodeInspectResult, Map<FindingKey, StewardFinding>> pendingFindings;
+    private final List<StewardFinding> findings;
+
+    StewardFindingSink(CodeInspectConfig config) {
+        this.config = config;
+        this.pendingFindings = new HashMap<>();
+        this.findings = new ArrayList<>();
+    }
+
+    @Override
+    public void accept(CodeInspectFinding finding) {
+        Map<FindingKey, StewardFinding> resultFindings = pendingFindings.get(finding.getResult());
+        if (resultFindings == null) {
+            resultFindings = new LinkedHashMap<>();
+            pendingFindings.put(finding.getResult(), resultFindings);
+        }
+        resultFindings.put(finding.getFindingKey(), StewardAdapter.toStewardFinding(finding));
+    }
+
+    @Override
+    public void supersede(CodeInspectFinding finding) {
+        accept(finding);
+    }
+
+    @Override
+    public void complete(CodeInspectResult result) {
+        Map<FindingKey, StewardFinding> resultFindings = pendingFindings.remove(result);
+        if (resultFindings != null && !result.isTimedOut()) {
+            findings.addAll(resultFindings.values());
+        }
+    }
+
+    @Override
+    public void close(boolean completed) throws Exception {
+        pendingFindings.clear();
+        if (completed) {
+            Steward.process(StewardAdapter.toStewardData(config, findings));
+        }
+    }
+}
@@ -9,6 +9,7 @@ import me.shib.security.codeinspect.scanners.java.dependencycheck.models.Vulnera
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,14 +18,17 @@ public final class DependencyCheck extends CodeInspect {
 
     private static final transient String cweBaseURL = "https://cwe.mitre.org/data/definitions/";
     private static final transient String tool = "DependencyCheck";
-    private static final transient File dependencyCheckReportFile = new File("bugaudit-dependency-check-result.json");
     private static final transient int cveRecheckHours = 24;
+    private static final transient String[] manifestFiles = {"pom.xml", "build.gradle", "build.gradle.kts",
+            "settings.gradle", "settings.gradle.kts", "gradle.lockfile", "libs.versions.toml", "*.jar"};
 
     private final CodeInspectConfig config;
+    private final File dependencyCheckReportFile;
 
     public DependencyCheck(CodeInspectConfig config) {
         super(config);
         this.config = config;
+        this.dependencyCheckReportFile = getWorkspaceFile("bugaudit-dependency-check-result.json");
     }
 
     @Override
@@ -121,9 +125,9 @@ public final class DependencyCheck extends CodeInspect {
                 codeinspectFinding.setField("Message", message);
                 codeinspectFinding.setCVE(vulnerability.getName());
                 codeinspectFinding.setField("Component", dependency.getFileName());
-                String currentPath = System.getProperty("user.dir") + "/";
+                String currentPath = config.getWorkDir().getAbsolutePath() + "/";
                 if (dependency.getFilePath().startsWith(currentPath)) {
-                    codeinspectFinding.setField("Path", dependency.getFilePath().replaceFirst(currentPath, ""));
+                    codeinspectFinding.setField("Path", dependency.getFilePath().substring(currentPath.length()));
                 }
                 codeinspectFinding.setField("Description", vulnerability.getDescription());
                 if (vulnerability.getCvssv2() != null) {
@@ -177,15 +181,19 @@ public final class DependencyCheck extends CodeInspect {
     }
 
     private void runDependecyCheck() throws IOException, InterruptedException {
-        runCommand("dependency-check" +
-                " --cveValidForHours " + cveRecheckHours +
-                " --format JSON" +
-                " --out " + dependencyCheckReportFile.getAbsolutePath() +
-                " --scan .");
+        runCommand(Arrays.asList("dependency-check",
+                "--cveValidForHours", cveRecheckHours + "",
+                "--format", "JSON",
+                "--out", dependencyCheckReportFile.getAbsolutePath(),
+                "--scan", "."));
     }
 
     @Override
     protected void scan() throws IOException, InterruptedException, CodeInspectException {
+        if (!hasChangedFiles(manifestFiles)) {
+            System.out.println("Skipping " + tool + ": No dependency manifest was changed");
+            return;
+        }
         dependencyCheckReportFile.delete();
         runDependecyCheck();
         DependencyCheckResult dependencyCheckResult = DependencyCheckResult.getResult(dependencyCheckReportFile);
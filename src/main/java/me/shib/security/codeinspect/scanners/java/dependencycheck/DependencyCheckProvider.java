@@ -0,0 +1,11 @@
+package me.shib.security.codeinspect.scanners.java.dependencycheck;
+
+import me.shib.security.codeinspect.*;
+
+public final class DependencyCheckProvider implements CodeInspectProvider {
+
+    @Override
+    public CodeInspect create(CodeInspectConfig config) throws CodeInspectException {
+        return new DependencyCheck(config);
+    }
+}
@@ -13,6 +13,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
@@ -28,12 +29,18 @@ public final class FindSecBugsScanner extends CodeInspect {
     private static transient final String thresholdLevel = "FINDSECBUGS_CONFIDENCE_LEVEL";
     private static transient final int java_Maven = 1;
     private static transient final int java_Gradle = 2;
+    private static transient final String[] sourceFiles = {"*.java"};
     private final List<String> modulePaths = new ArrayList<>();
 
-    private CodeInspectConfig config;
+    private final CodeInspectConfig config;
+    private final File includeFilterFile;
+    private final File excludeFilterFile;
 
     public FindSecBugsScanner(CodeInspectConfig config) {
         super(config);
+        this.config = config;
+        this.includeFilterFile = getWorkspaceFile("spotbugs-security-include.xml");
+        this.excludeFilterFile = getWorkspaceFile("spotbugs-security-exclude.xml");
     }
 
     protected String readFromFile(File file) throws IOException {
@@ -69,31 +76,8 @@ public final class FindSecBugsScanner extends CodeInspect {
         File buildFile = new File(directory + File.separator + fileName);
 
         System.out.println(buildFile.getAbsolutePath());
-        if (buildFile.exists()) {
-            this.modulePaths.add(directory.getAbsolutePath());
-            //The corresponding two files is used to tell spotbugs to report only security bugs and not others!
-            File excludeFile = new File(directory + File.separator + "spotbugs-security-exclude.xml");
-            String excludeFileContents = "<FindBugsFilter>\n" +
-                    "</FindBugsFilter>";
-
-            if (!excludeFile.exists())
-                writeToFile(excludeFileContents, excludeFile);
-            else
-                System.out.println("Exclude file already present!");
-
-            File includeFile = new File(directory + File.separator + "spotbugs-security-include.xml");
-            System.out.println(includeFile.getAbsolutePath());
-            String includeFileContents = "<FindBugsFilter>\n" +
-                    "    <Match>\n" +
-                    "        <Bug category=\"SECURITY\"/>\n" +
-                    "    </Match>\n" +
-                    "</FindBugsFilter>";
-
-            if (!includeFile.exists())
-                writeToFile(includeFileContents, includeFile);
-            else
-                System.out.println("Include file already present!");
-
+        if (config.getManifest().hasBuildFile(directory, fileName)) {
+            this.modulePaths.add(directory.toPath().toAbsolutePath().normalize().toString());
             List<String> lines = Files.readAllLines(buildFile.toPath(), StandardCharsets.UTF_8);
 
             String confidenceLevel = System.getenv(thresholdLevel);
@@ -113,8 +97,8 @@ public final class FindSecBugsScanner extends CodeInspect {
                         "                <threshold>" + confidenceLevel + "</threshold>\n" +
                         "                <failOnError>true</failOnError>\n" +
                         "                <maxHeap>2048</maxHeap>\n" +
-                        "                <includeFilterFile>spotbugs-security-include.xml</includeFilterFile>\n" +
-                        "                <excludeFilterFile>spotbugs-security-exclude.xml</excludeFilterFile>\n" +
+                        "                <includeFilterFile>" + includeFilterFile.getAbsolutePath() + "</includeFilterFile>\n" +
+                        "                <excludeFilterFile>" + excludeFilterFile.getAbsolutePath() + "</excludeFilterFile>\n" +
                         "                <plugins>\n" +
                         "                    <plugin>\n" +
                         "                        <groupId>com.h3xstream.findsecbugs</groupId>\n" +
@@ -220,8 +204,8 @@ public final class FindSecBugsScanner extends CodeInspect {
                         "       reportsDir = file(\"$project.buildDir\")\n" +
                         "       effort = \"max\"\n" +
                         "       reportLevel = \"" + confidenceLevel.toLowerCase() + "\"\n" +
-                        "       includeFilter = file(\"$rootProject.projectDir/spotbugs-security-include.xml\")\n" +
-                        "       excludeFilter = file(\"$rootProject.projectDir/spotbugs-security-exclude.xml\")\n" +
+                        "       includeFilter = file(\"" + includeFilterFile.getAbsolutePath() + "\")\n" +
+                        "       excludeFilter = file(\"" + excludeFilterFile.getAbsolutePath() + "\")\n" +
                         "      }\n" +
                         "\n" +
                         "      tasks.withType(FindBugs) {\n" +
@@ -233,12 +217,25 @@ public final class FindSecBugsScanner extends CodeInspect {
                         "    }\n" +
                         "  }";
 
-                Files.write(Paths.get(config.getScanDirPath() + File.separator + fileName), pluginStr.getBytes(), StandardOpenOption.APPEND);
+                Files.write(Paths.get(config.getScanDir() + File.separator + fileName), pluginStr.getBytes(), StandardOpenOption.APPEND);
             }
         } else
             throw new FileNotFoundException(fileName + "not found!");
     }
 
+    private void writeFilterFiles() throws FileNotFoundException {
+        //The corresponding two files is used to tell spotbugs to report only security bugs and not others!
+        String excludeFileContents = "<FindBugsFilter>\n" +
+                "</FindBugsFilter>";
+        writeToFile(excludeFileContents, excludeFilterFile);
+        String includeFileContents = "<FindBugsFilter>\n" +
+                "    <Match>\n" +
+                "        <Bug category=\"SECURITY\"/>\n" +
+                "    </Match>\n" +
+                "</FindBugsFilter>";
+        writeToFile(includeFileContents, includeFilterFile);
+    }
+
     private List<String> getModulePaths(File directory) throws IOException {
         List<String> modulePaths = new ArrayList<>();
         File file = new File(directory + File.separator + "pom.xml");
@@ -248,9 +245,12 @@ public final class FindSecBugsScanner extends CodeInspect {
 
         while (matcher.find()) {
             String module = matcher.group(1);
-            String path = directory + File.separator + module;
-
-            modulePaths.add(path);
+            File moduleDir = new File(directory, module.trim());
+            if (config.getManifest().hasBuildFile(moduleDir, "pom.xml")) {
+                modulePaths.add(moduleDir.getPath());
+            } else {
+                System.out.println("Skipping module without a pom.xml: " + module);
+            }
         }
 
         return modulePaths;
@@ -293,6 +293,8 @@ public final class FindSecBugsScanner extends CodeInspect {
         Node nNode = nList.item(0);
         Element nElement = (Element) nNode;
 
+        List<FindSecBugsWarning> unhashedBugs = new ArrayList<FindSecBugsWarning>();
+        List<HashRequest> hashRequests = new ArrayList<HashRequest>();
         List<String> srcDirList = new ArrayList<String>();
         nList = nElement.getElementsByTagName("SrcDir");
         for (int temp = 0; temp < nList.getLength(); temp++)
@@ -363,16 +365,90 @@ public final class FindSecBugsScanner extends CodeInspect {
                 findBugs.setSeverity(getSeverity(priority, rank));
 
                 if (findBugs.getInstanceHash().isEmpty()) {
-                    File bugFile = new File(findBugs.getFilePath());
-                    String instanceHash = getHash(bugFile, Integer.parseInt(lineStart), Integer.parseInt(lineEnd), findBugs.getBugType(), null);
-                    findBugs.setInstanceHash(instanceHash);
+                    File bugFile = resolveSourceFile(findBugs.getFilePath());
+                    if (bugFile != null && lineStart.matches("\\d+") && lineEnd.matches("\\d+")) {
+                        unhashedBugs.add(findBugs);
+                        hashRequests.add(new HashRequest(bugFile, Integer.parseInt(lineStart), Integer.parseInt(lineEnd), findBugs.getBugType(), null));
+                    } else {
+                        findBugs.setInstanceHash(getLocationKey(findBugs));
+                    }
                 }
                 bugsList.add(findBugs);
             }
         }
+        List<String> instanceHashes = getHashes(hashRequests);
+        for (int i = 0; i < unhashedBugs.size(); i++) {
+            String instanceHash = instanceHashes.get(i);
+            unhashedBugs.get(i).setInstanceHash(instanceHash != null ? instanceHash : getLocationKey(unhashedBugs.get(i)));
+        }
         return bugsList;
     }
 
+    private List<String> getChangedModules() {
+        List<String> changedModules = new ArrayList<>();
+        for (String changedFile : config.getChangeSet().getChangedFiles(config.getScanDir(), sourceFiles)) {
+            String filePath = new File(config.getScanDir(), changedFile).toPath().toAbsolutePath().normalize().toString();
+            String changedModule = null;
+            for (String modulePath : modulePaths) {
+                if (filePath.startsWith(modulePath + File.separator) &&
+                        (changedModule == null || modulePath.length() > changedModule.length())) {
+                    changedModule = modulePath;
+                }
+            }
+            if (changedModule != null && !changedModules.contains(changedModule)) {
+                changedModules.add(changedModule);
+            }
+        }
+        return changedModules;
+    }
+
+    private String toModuleList(List<String> modules) {
+        Path scanDir = config.getScanDir().toPath().toAbsolutePath().normalize();
+        List<String> moduleList = new ArrayList<>();
+        for (String module : modules) {
+            String relativePath = scanDir.relativize(Paths.get(module)).toString();
+            moduleList.add(relativePath.isEmpty() ? "." : relativePath);
+        }
+        return String.join(",", moduleList);
+    }
+
+    private static String getLocationKey(FindSecBugsWarning warning) {
+        return warning.getBugType() + ":" + warning.getFilePath() + ":" + warning.getLineNumber();
+    }
+
+    private File resolveSourceFile(String filePath) {
+        File file = new File(filePath);
+        if (file.isAbsolute()) {
+            return file;
+        }
+        for (String modulePath : modulePaths) {
+            File sourceFile = new File(modulePath, "src" + File.separator + "main" + File.separator +
+                    "java" + File.separator + filePath);
+            if (config.getManifest().contains(sourceFile)) {
+                return sourceFile;
+            }
+        }
+        return null;
+    }
+
+    private boolean isChangedWarning(FindSecBugsWarning warning) {
+        if (config.getChangeSet() == null || warning.getFilePath() == null) {
+            return true;
+        }
+        File sourceFile = resolveSourceFile(warning.getFilePath());
+        if (sourceFile == null) {
+            return true;
+        }
+        String[] lines = warning.getLineNumber().split("-");
+        try {
+            int start = Integer.parseInt(lines[0]);
+            int end = lines.length > 1 ? Integer.parseInt(lines[1]) : start;
+            return isChanged(sourceFile, start, end);
+        } catch (NumberFormatException e) {
+            return isChanged(sourceFile, 1, Integer.MAX_VALUE);
+        }
+    }
+
     private void addKeys(CodeInspectFinding vulnerability, FindSecBugsWarning warning) {
         vulnerability.addKey(warning.getFilePath());
         vulnerability.addKey(config.getGitRepo() + "-" + warning.getInstanceHash());
@@ -381,6 +457,9 @@ public final class FindSecBugsScanner extends CodeInspect {
 
     private void warningsToVulns(List<FindSecBugsWarning> warnings) {
         for (FindSecBugsWarning warning : warnings) {
+            if (!isChangedWarning(warning)) {
+                continue;
+            }
             String title = "FindSecBugs (" + warning.getBugType() + ") found in " + warning.getFilePath() + config.getGitRepo();
             CodeInspectFinding finding = newFinding(title, CodeInspectPriority.valueOf("P" + warning.getSeverity()));
             String message = "The following insecure code was found **[was found](" +
@@ -403,7 +482,7 @@ public final class FindSecBugsScanner extends CodeInspect {
                 warningsToVulns(getXMLValuesForBug(module));
             }
         } else if (buildType == java_Gradle) {
-            String buildDirString = runCommand("gradle properties");
+            String buildDirString = runCommand("gradle properties", "buildDir:");
             Pattern pattern = Pattern.compile("buildDir: *(.*)");
             Matcher matcher = pattern.matcher(buildDirString);
             String buildDir = "";
@@ -413,11 +492,22 @@ public final class FindSecBugsScanner extends CodeInspect {
         }
     }
 
-    private void runFindSecBugs(int buildType) throws InterruptedException, SAXException, ParserConfigurationException, IOException {
+    private boolean runFindSecBugs(int buildType) throws InterruptedException, SAXException, ParserConfigurationException, IOException {
         System.out.println("Running FindSecBugs!\n");
+        writeFilterFiles();
 
         if (buildType == java_Maven) {
             modifyXMLsForEnvironment(config.getScanDir(), java_Maven);
+            String moduleArgument = "";
+            if (config.getChangeSet() != null) {
+                List<String> changedModules = getChangedModules();
+                if (changedModules.isEmpty()) {
+                    System.out.println("Skipping " + tool + ": No Java files were changed in any module");
+                    return false;
+                }
+                modulePaths.retainAll(changedModules);
+                moduleArgument = " -pl " + toModuleList(changedModules);
+            }
             String buildScript = config.getBuildScript();
             String command, extraArgument;
             if (buildScript == null)
@@ -432,21 +522,21 @@ public final class FindSecBugsScanner extends CodeInspect {
                     extraArgument = "";
                 }
             }
-            command = "mvn spotbugs:spotbugs" + extraArgument;
-            String spotBugsResponse = runCommand(command);
+            command = "mvn spotbugs:spotbugs" + extraArgument + moduleArgument;
+            String spotBugsResponse = runCommand(command, "BUILD SUCCESS");
             if (!spotBugsResponse.contains("BUILD SUCCESS"))
                 throw new CodeInspectException("FindSecBugs failed!");
         } else if (buildType == java_Gradle) {
             modifyXMLsForEnvironment(config.getScanDir(), java_Gradle);
 
             String command = "gradle findbugs";
-            String findBugsResponse = runCommand(command);
+            String findBugsResponse = runCommand(command, "BUILD SUCCESSFUL");
 
             if (!findBugsResponse.contains("BUILD SUCCESSFUL"))
                 throw new CodeInspectException("FindSecBugs failed!");
 
         }
-
+        return true;
     }
 
     @Override
@@ -462,13 +552,22 @@ public final class FindSecBugsScanner extends CodeInspect {
     @Override
     protected void scan() throws Exception {
 
+        if (!hasChangedFiles(sourceFiles)) {
+            System.out.println("Skipping " + tool + ": No Java files were changed");
+            return;
+        }
         int buildType;
-        if (new File(config.getScanDirPath() + File.separator + "pom.xml").exists())
+        CodeInspectManifest manifest = config.getManifest();
+        if (manifest.hasBuildFile(config.getScanDir(), "pom.xml"))
             buildType = java_Maven;
-        else
+        else if (manifest.hasBuildFile(config.getScanDir(), "build.gradle"))
             buildType = java_Gradle;
+        else {
+            System.out.println("Skipping " + tool + ": No pom.xml or build.gradle was found");
+            return;
+        }
 
-        runFindSecBugs(buildType);
-        processFindSecBugsResult(buildType);
+        if (runFindSecBugs(buildType))
+            processFindSecBugsResult(buildType);
     }
 }
@@ -0,0 +1,11 @@
+package me.shib.security.codeinspect.scanners.java.findsecbugs;
+
+import me.shib.security.codeinspect.*;
+
+public final class FindSecBugsScannerProvider implements CodeInspectProvider {
+
+    @Override
+    public CodeInspect create(CodeInspectConfig config) throws CodeInspectException {
+        return new FindSecBugsScanner(config);
+    }
+}
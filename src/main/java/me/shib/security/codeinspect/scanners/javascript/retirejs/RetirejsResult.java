@@ -14,8 +14,6 @@ import java.util.List;
 final class RetirejsResult {
 
 
-    private static final transient String currentPath = System.getProperty("user.dir") + "/";
-
     private static final Gson gson = new GsonBuilder().create();
     private String version;
     private String start;
@@ -28,14 +26,16 @@ final class RetirejsResult {
                 content.substring(start + toReplace.length());
     }
 
-    private static void cleanUpFilePath(RetirejsResult.Data data) {
-        data.setFile(data.getFile().replaceFirst(currentPath, ""));
+    private static void cleanUpFilePath(RetirejsResult.Data data, String currentPath) {
+        if (data.getFile().startsWith(currentPath)) {
+            data.setFile(data.getFile().substring(currentPath.length()));
+        }
         if (data.getFile().endsWith(".min.js")) {
             data.setFile(replaceLast(data.getFile(), ".min.js", ".js"));
         }
     }
 
-    static synchronized List<Data> getResult(File jsonFile) throws IOException {
+    static synchronized List<Data> getResult(File jsonFile, File workDir) throws IOException {
         StringBuilder jsonContent = new StringBuilder();
         BufferedReader br = new BufferedReader(new FileReader(jsonFile));
         String line;
@@ -52,8 +52,9 @@ final class RetirejsResult {
         } else {
             dataList = gson.fromJson(jsonContent.toString(), RetirejsResult.class).data;
         }
+        String currentPath = workDir.getAbsolutePath() + "/";
         for (Data data : dataList) {
-            cleanUpFilePath(data);
+            cleanUpFilePath(data, currentPath);
         }
         return dataList;
     }
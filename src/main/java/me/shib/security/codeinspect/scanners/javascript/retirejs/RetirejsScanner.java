@@ -5,6 +5,7 @@ import me.shib.security.codeinspect.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,10 +13,17 @@ import java.util.Set;
 public final class RetirejsScanner extends CodeInspect {
 
     private static final transient String tool = "RetireJS";
-    private static final transient File retireJsResultFile = new File("bugaudit-retirejs-result.json");
+    private static final transient String npmInstallStage = "NPM-Install";
+    private static final transient String[] manifestFiles = {"package.json", "package-lock.json",
+            "npm-shrinkwrap.json", "yarn.lock", "bower.json"};
+    private static final transient String[] scannedFiles = {"package.json", "package-lock.json",
+            "npm-shrinkwrap.json", "yarn.lock", "bower.json", "*.js"};
+
+    private final File retireJsResultFile;
 
     public RetirejsScanner(CodeInspectConfig config) throws CodeInspectException {
         super(config);
+        this.retireJsResultFile = getWorkspaceFile("bugaudit-retirejs-result.json");
     }
 
     private static CodeInspectPriority getPriorityForSeverity(String severity) {
@@ -32,7 +40,7 @@ public final class RetirejsScanner extends CodeInspect {
         }
     }
 
-    private void retirejsExecutor(String command) throws CodeInspectException, IOException, InterruptedException {
+    private void retirejsExecutor(List<String> command) throws CodeInspectException, IOException, InterruptedException {
         String response = runCommand(command);
         if (response.contains("command not found") || response.contains("is currently not installed")) {
             throw new CodeInspectException("Install npm before proceeding");
@@ -41,16 +49,18 @@ public final class RetirejsScanner extends CodeInspect {
 
     private void npmProjectBuild() throws CodeInspectException, IOException, InterruptedException {
         System.out.println("Building Project...");
-        retirejsExecutor("npm install");
+        retirejsExecutor(Arrays.asList("npm", "install"));
     }
 
     private void runRetireJS() throws CodeInspectException, IOException, InterruptedException {
         System.out.println("Running RetireJS...");
-        retirejsExecutor("retire -p --outputformat json --outputpath " + retireJsResultFile.getAbsolutePath());
+        retirejsExecutor(Arrays.asList("retire", "-p", "--outputformat", "json",
+                "--outputpath", retireJsResultFile.getAbsolutePath()));
     }
 
     private void parseResultData() throws IOException, CodeInspectException {
-        List<RetirejsResult.Data> dataList = RetirejsResult.getResult(RetirejsScanner.retireJsResultFile);
+        List<RetirejsResult.Data> dataList = RetirejsResult.getResult(retireJsResultFile,
+                getConfig().getWorkDir());
         if (dataList != null) {
             for (RetirejsResult.Data data : dataList) {
                 if (data.getResults() != null) {
@@ -188,6 +198,37 @@ public final class RetirejsScanner extends CodeInspect {
         }
     }
 
+    private boolean hasJavaScriptSources() {
+        CodeInspectManifest manifest = getConfig().getManifest();
+        for (String manifestFile : manifestFiles) {
+            if (manifest.hasBuildFile(getConfig().getScanDir(), manifestFile)) {
+                return true;
+            }
+        }
+        for (String manifestFile : manifestFiles) {
+            if (manifest.hasBuildFile(manifestFile)) {
+                return true;
+            }
+        }
+        return manifest.getFileCount("js") > 0;
+    }
+
+    @Override
+    protected List<CodeInspectStage> getStages() {
+        List<CodeInspectStage> stages = new ArrayList<>();
+        if (!hasChangedFiles(manifestFiles) ||
+                !getConfig().getManifest().hasBuildFile(getConfig().getScanDir(), "package.json")) {
+            return stages;
+        }
+        stages.add(new CodeInspectStage(npmInstallStage, CodeInspectStage.BUILD) {
+            @Override
+            protected void run() throws CodeInspectException, IOException, InterruptedException {
+                npmProjectBuild();
+            }
+        });
+        return stages;
+    }
+
     @Override
     public Lang getLang() {
         return Lang.JavaScript;
@@ -205,8 +246,15 @@ public final class RetirejsScanner extends CodeInspect {
 
     @Override
     protected void scan() throws CodeInspectException, IOException, InterruptedException {
+        if (!hasChangedFiles(scannedFiles)) {
+            System.out.println("Skipping " + tool + ": No dependency manifest or JavaScript file was changed");
+            return;
+        }
+        if (!hasJavaScriptSources()) {
+            System.out.println("Skipping " + tool + ": No JavaScript sources or dependency manifests were found");
+            return;
+        }
         retireJsResultFile.delete();
-        npmProjectBuild();
         runRetireJS();
         parseResultData();
     }
@@ -0,0 +1,11 @@
+package me.shib.security.codeinspect.scanners.javascript.retirejs;
+
+import me.shib.security.codeinspect.*;
+
+public final class RetirejsScannerProvider implements CodeInspectProvider {
+
+    @Override
+    public CodeInspect create(CodeInspectConfig config) throws CodeInspectException {
+        return new RetirejsScanner(config);
+    }
+}
@@ -4,15 +4,22 @@ import me.shib.security.codeinspect.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public final class BrakemanScanner extends CodeInspect {
 
     private static final String tool = "Brakeman";
-    private static final File brakemanOutput = new File("brakeman-result.json");
     private static final String[] excludedPaths = {"Gemfile.lock"};
+    private static final String[] dependencyFiles = {"Gemfile", "Gemfile.lock"};
+    private static final String[] sourceFiles = {"*.rb", "*.erb", "*.haml", "*.slim", "*.rhtml", "*.builder"};
+
+    private final File brakemanOutput;
 
     public BrakemanScanner(CodeInspectConfig config) throws CodeInspectException {
         super(config);
+        this.brakemanOutput = getWorkspaceFile("brakeman-result.json");
     }
 
     private static boolean isExcludedPath(String path) {
@@ -42,12 +49,23 @@ public final class BrakemanScanner extends CodeInspect {
     @Override
     protected void scan() throws CodeInspectException, IOException, InterruptedException {
         brakemanOutput.delete();
-        runBrakeman();
+        List<String> command = new ArrayList<>(Arrays.asList("brakeman", "-o", brakemanOutput.getAbsolutePath()));
+        CodeInspectChangeSet changeSet = getConfig().getChangeSet();
+        if (changeSet != null && !changeSet.hasChangedFiles(getConfig().getScanDir(), dependencyFiles)) {
+            List<String> changedFiles = changeSet.getChangedFiles(getConfig().getScanDir(), sourceFiles);
+            if (changedFiles.isEmpty()) {
+                System.out.println("Skipping " + tool + ": No Ruby files were changed");
+                return;
+            }
+            command.add("--only-files");
+            command.add(String.join(",", changedFiles));
+        }
+        runBrakeman(command);
         processBrakemanResult();
     }
 
-    private void runBrakeman() throws CodeInspectException, IOException, InterruptedException {
-        String response = runCommand("brakeman -o " + brakemanOutput.getAbsolutePath());
+    private void runBrakeman(List<String> command) throws CodeInspectException, IOException, InterruptedException {
+        String response = runCommand(command);
         if (response.contains("command not found") || response.contains("is currently not installed")) {
             throw new CodeInspectException("Install brakeman before proceeding");
         }
@@ -103,7 +121,9 @@ public final class BrakemanScanner extends CodeInspect {
     private void processBrakemanResult() throws IOException, CodeInspectException {
         BrakemanResult brakemanResult = BrakemanResult.getBrakemanResult(brakemanOutput);
         for (BrakemanWarning warning : brakemanResult.getWarnings()) {
-            if (!isExcludedPath(warning.getFile())) {
+            int line = warning.getLine();
+            if (!isExcludedPath(warning.getFile()) && isChanged(new File(getConfig().getScanDir(), warning.getFile()),
+                    line > 0 ? line : 1, line > 0 ? line : Integer.MAX_VALUE)) {
                 warningToFinding(warning);
             }
         }
@@ -0,0 +1,11 @@
+package me.shib.security.codeinspect.scanners.ruby.brakeman;
+
+import me.shib.security.codeinspect.*;
+
+public final class BrakemanScannerProvider implements CodeInspectProvider {
+
+    @Override
+    public CodeInspect create(CodeInspectConfig config) throws CodeInspectException {
+        return new BrakemanScanner(config);
+    }
+}
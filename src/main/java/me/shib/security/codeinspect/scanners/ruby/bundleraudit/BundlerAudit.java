@@ -5,15 +5,23 @@ import me.shib.security.codeinspect.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public final class BundlerAudit extends CodeInspect {
 
     private static transient final String tool = "BundlerAudit";
-    private static transient final File bundlerAuditOutput = new File("bundleraudit-result.txt");
+    private static transient final String databaseUpdateStage = "BundlerAudit-DB-Update";
+    private static transient final long databaseRefreshMillis = 6 * 60 * 60 * 1000L;
+    private static transient long databaseUpdatedAt;
+    private static transient final String[] manifestFiles = {"Gemfile", "Gemfile.lock", "*.gemspec"};
+
+    private final File bundlerAuditOutput;
 
     public BundlerAudit(CodeInspectConfig config) {
         super(config);
+        this.bundlerAuditOutput = getWorkspaceFile("bundleraudit-result.txt");
     }
 
     private static CodeInspectPriority getPriorityNumberForName(String priorityName) {
@@ -141,8 +149,14 @@ public final class BundlerAudit extends CodeInspect {
         }
     }
 
-    private String bundlerAuditExecutor(String command) throws CodeInspectException, IOException, InterruptedException {
-        String response = runCommand(command);
+    private String bundlerAuditExecutor(List<String> command, File outputFile) throws CodeInspectException,
+            IOException, InterruptedException {
+        String response;
+        if (outputFile != null) {
+            response = runCommandToFile(command, outputFile);
+        } else {
+            response = runCommand(command);
+        }
         if (response.contains("command not found") || response.contains("is currently not installed")) {
             throw new CodeInspectException("Install npm before proceeding");
         }
@@ -151,12 +165,18 @@ public final class BundlerAudit extends CodeInspect {
 
     private void runBundlerAudit() throws CodeInspectException, IOException, InterruptedException {
         System.out.println("Running BundlerAudit...");
-        String bundlerAuditResponse = bundlerAuditExecutor("bundle-audit");
-        writeToFile(bundlerAuditResponse, bundlerAuditOutput);
+        bundlerAuditExecutor(Collections.singletonList("bundle-audit"), bundlerAuditOutput);
     }
 
     private void updateBundlerAuditDatabase() throws CodeInspectException, IOException, InterruptedException {
-        bundlerAuditExecutor("bundle-audit update");
+        synchronized (BundlerAudit.class) {
+            if (System.currentTimeMillis() - databaseUpdatedAt < databaseRefreshMillis) {
+                System.out.println("BundlerAudit database is up to date");
+                return;
+            }
+            bundlerAuditExecutor(Arrays.asList("bundle-audit", "update"), null);
+            databaseUpdatedAt = System.currentTimeMillis();
+        }
     }
 
     private void parseBundlerAuditResult() throws CodeInspectException, IOException {
@@ -164,6 +184,25 @@ public final class BundlerAudit extends CodeInspect {
         parseOutputContentToResult(resultContent);
     }
 
+    private boolean hasLockFile() {
+        return getConfig().getManifest().hasBuildFile(getConfig().getScanDir(), "Gemfile.lock");
+    }
+
+    @Override
+    protected List<CodeInspectStage> getStages() {
+        List<CodeInspectStage> stages = new ArrayList<>();
+        if (!hasChangedFiles(manifestFiles) || !hasLockFile()) {
+            return stages;
+        }
+        stages.add(new CodeInspectStage(databaseUpdateStage) {
+            @Override
+            protected void run() throws CodeInspectException, IOException, InterruptedException {
+                updateBundlerAuditDatabase();
+            }
+        });
+        return stages;
+    }
+
     @Override
     public Lang getLang() {
         return Lang.Ruby;
@@ -181,8 +220,15 @@ public final class BundlerAudit extends CodeInspect {
 
     @Override
     protected void scan() throws Exception {
+        if (!hasChangedFiles(manifestFiles)) {
+            System.out.println("Skipping " + tool + ": No dependency manifest was changed");
+            return;
+        }
+        if (!hasLockFile()) {
+            System.out.println("Skipping " + tool + ": No Gemfile.lock was found");
+            return;
+        }
         bundlerAuditOutput.delete();
-        updateBundlerAuditDatabase();
         runBundlerAudit();
         parseBundlerAuditResult();
     }
@@ -0,0 +1,11 @@
+package me.shib.security.codeinspect.scanners.ruby.bundleraudit;
+
+import me.shib.security.codeinspect.*;
+
+public final class BundlerAuditProvider implements CodeInspectProvider {
+
+    @Override
+    public CodeInspect create(CodeInspectConfig config) throws CodeInspectException {
+        return new BundlerAudit(config);
+    }
+}
@@ -0,0 +1,64 @@
+package me.shib.security.codeinspect;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodeInspectChangeSetTest {
+
+    private static final transient File repoDir = new File("repo").getAbsoluteFile();
+    private static final transient String fileList = "empty.rb\u0000keep.txt\u0000lib.jar\u0000new.txt\u0000\n";
+    private static final transient String diff = "diff --git empty.rb empty.rb\n" +
+            "new file mode 100644\n" +
+            "index 0000000..e69de29\n" +
+            "diff --git keep.txt keep.txt\n" +
+            "index 587be6b..b77b4eb 100644\n" +
+            "--- keep.txt\n" +
+            "+++ keep.txt\n" +
+            "@@ -1,0 +2 @@ x\n" +
+            "+y\n" +
+            "diff --git lib.jar lib.jar\n" +
+            "new file mode 100644\n" +
+            "index 0000000..35b9ca2\n" +
+            "Binary files /dev/null and lib.jar differ\n" +
+            "diff --git old.txt new.txt\n" +
+            "similarity index 100%\n" +
+            "rename from old.txt\n" +
+            "rename to new.txt\n";
+
+    @Test
+    public void binaryFileIsChanged() {
+        CodeInspectChangeSet changeSet = CodeInspectChangeSet.fromDiff(repoDir, "base", fileList, diff);
+        assertTrue(changeSet.hasChangedFiles(repoDir, "*.jar"));
+        assertTrue(changeSet.isFileChanged(new File(repoDir, "lib.jar")));
+    }
+
+    @Test
+    public void renamedAndEmptyFilesAreChanged() {
+        CodeInspectChangeSet changeSet = CodeInspectChangeSet.fromDiff(repoDir, "base", fileList, diff);
+        assertTrue(changeSet.isFileChanged(new File(repoDir, "new.txt")));
+        assertFalse(changeSet.isFileChanged(new File(repoDir, "old.txt")));
+        assertTrue(changeSet.hasChangedFiles(repoDir, "*.rb"));
+        assertEquals(4, changeSet.getChangedFileCount());
+    }
+
+    @Test
+    public void changedLinesAreTracked() {
+        CodeInspectChangeSet changeSet = CodeInspectChangeSet.fromDiff(repoDir, "base", fileList, diff);
+        File keep = new File(repoDir, "keep.txt");
+        assertTrue(changeSet.isChanged(keep, 2, 2));
+        assertFalse(changeSet.isChanged(keep, 1, 1));
+        assertFalse(changeSet.isChanged(new File(repoDir, "new.txt"), 1, 3));
+    }
+
+    @Test
+    public void fileListWithoutDiffIsFileLevel() {
+        CodeInspectChangeSet changeSet = CodeInspectChangeSet.fromFileList(repoDir, "base", fileList);
+        assertTrue(changeSet.isChanged(new File(repoDir, "lib.jar"), 1, 1));
+        assertEquals(4, changeSet.getChangedFileCount());
+    }
+}